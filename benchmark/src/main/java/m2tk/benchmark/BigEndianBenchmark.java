@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.benchmark;
+
+import m2tk.util.BigEndian;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大端序整数读取：BigEndian（VarHandle宽加载）与逐字节拼装的对比，覆盖各个宽度，
+ * 以及直接缓冲区上的读取。每次操作在一个传输包大小的数组上依次读取 {@link #READS} 个位置。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BigEndianBenchmark
+{
+    static final int READS = 160;
+
+    @Param({"2", "3", "4", "5", "6", "7", "8"})
+    public int width;
+
+    private byte[] bytes;
+    private ByteBuffer direct;
+
+    @Setup
+    public void setup()
+    {
+        bytes = new byte[188];
+        new Random(20241018L).nextBytes(bytes);
+        direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).clear();
+        for (int i = 0; i + width <= bytes.length; i++)
+        {
+            if (read(bytes, i) != bytewise(bytes, i, width) || read(direct, i) != bytewise(bytes, i, width))
+                throw new IllegalStateException("BigEndian self-check failed at " + i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READS)
+    public long varHandle()
+    {
+        long sum = 0;
+        for (int i = 0; i < READS; i++)
+            sum += read(bytes, i);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READS)
+    public long varHandleDirect()
+    {
+        long sum = 0;
+        for (int i = 0; i < READS; i++)
+            sum += read(direct, i);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READS)
+    public long bytewise()
+    {
+        long sum = 0;
+        for (int i = 0; i < READS; i++)
+            sum += bytewise(bytes, i, width);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READS)
+    public long bytewiseDirect()
+    {
+        long sum = 0;
+        for (int i = 0; i < READS; i++)
+            sum += bytewise(direct, i, width);
+        return sum;
+    }
+
+    private long read(byte[] data, int offset)
+    {
+        switch (width)
+        {
+            case 2: return BigEndian.getUINT16(data, offset);
+            case 3: return BigEndian.getUINT24(data, offset);
+            case 4: return BigEndian.getUINT32(data, offset);
+            case 5: return BigEndian.getUINT40(data, offset);
+            case 6: return BigEndian.getUINT48(data, offset);
+            case 7: return BigEndian.getUINT56(data, offset);
+            default: return BigEndian.getUINT64(data, offset);
+        }
+    }
+
+    private long read(ByteBuffer data, int offset)
+    {
+        switch (width)
+        {
+            case 2: return BigEndian.getUINT16(data, offset);
+            case 3: return BigEndian.getUINT24(data, offset);
+            case 4: return BigEndian.getUINT32(data, offset);
+            case 5: return BigEndian.getUINT40(data, offset);
+            case 6: return BigEndian.getUINT48(data, offset);
+            case 7: return BigEndian.getUINT56(data, offset);
+            default: return BigEndian.getUINT64(data, offset);
+        }
+    }
+
+    // 原先的逐字节实现（按宽度展开），作为对照
+    private static long bytewise(byte[] d, int o, int width)
+    {
+        switch (width)
+        {
+            case 2: return ((d[o] & 0xFF) << 8) | (d[o + 1] & 0xFF);
+            case 3: return ((d[o] & 0xFF) << 16) | ((d[o + 1] & 0xFF) << 8) | (d[o + 2] & 0xFF);
+            case 4: return ((d[o] & 0xFFL) << 24) | ((d[o + 1] & 0xFFL) << 16) | ((d[o + 2] & 0xFFL) << 8) |
+                           (d[o + 3] & 0xFFL);
+            case 5: return ((d[o] & 0xFFL) << 32) | ((d[o + 1] & 0xFFL) << 24) | ((d[o + 2] & 0xFFL) << 16) |
+                           ((d[o + 3] & 0xFFL) << 8) | (d[o + 4] & 0xFFL);
+            case 6: return ((d[o] & 0xFFL) << 40) | ((d[o + 1] & 0xFFL) << 32) | ((d[o + 2] & 0xFFL) << 24) |
+                           ((d[o + 3] & 0xFFL) << 16) | ((d[o + 4] & 0xFFL) << 8) | (d[o + 5] & 0xFFL);
+            case 7: return ((d[o] & 0xFFL) << 48) | ((d[o + 1] & 0xFFL) << 40) | ((d[o + 2] & 0xFFL) << 32) |
+                           ((d[o + 3] & 0xFFL) << 24) | ((d[o + 4] & 0xFFL) << 16) | ((d[o + 5] & 0xFFL) << 8) |
+                           (d[o + 6] & 0xFFL);
+            default: return ((d[o] & 0xFFL) << 56) | ((d[o + 1] & 0xFFL) << 48) | ((d[o + 2] & 0xFFL) << 40) |
+                            ((d[o + 3] & 0xFFL) << 32) | ((d[o + 4] & 0xFFL) << 24) | ((d[o + 5] & 0xFFL) << 16) |
+                            ((d[o + 6] & 0xFFL) << 8) | (d[o + 7] & 0xFFL);
+        }
+    }
+
+    private static long bytewise(ByteBuffer d, int o, int width)
+    {
+        switch (width)
+        {
+            case 2: return ((d.get(o) & 0xFF) << 8) | (d.get(o + 1) & 0xFF);
+            case 3: return ((d.get(o) & 0xFF) << 16) | ((d.get(o + 1) & 0xFF) << 8) | (d.get(o + 2) & 0xFF);
+            case 4: return ((d.get(o) & 0xFFL) << 24) | ((d.get(o + 1) & 0xFFL) << 16) | ((d.get(o + 2) & 0xFFL) << 8) |
+                           (d.get(o + 3) & 0xFFL);
+            case 5: return ((d.get(o) & 0xFFL) << 32) | ((d.get(o + 1) & 0xFFL) << 24) | ((d.get(o + 2) & 0xFFL) << 16) |
+                           ((d.get(o + 3) & 0xFFL) << 8) | (d.get(o + 4) & 0xFFL);
+            case 6: return ((d.get(o) & 0xFFL) << 40) | ((d.get(o + 1) & 0xFFL) << 32) | ((d.get(o + 2) & 0xFFL) << 24) |
+                           ((d.get(o + 3) & 0xFFL) << 16) | ((d.get(o + 4) & 0xFFL) << 8) | (d.get(o + 5) & 0xFFL);
+            case 7: return ((d.get(o) & 0xFFL) << 48) | ((d.get(o + 1) & 0xFFL) << 40) | ((d.get(o + 2) & 0xFFL) << 32) |
+                           ((d.get(o + 3) & 0xFFL) << 24) | ((d.get(o + 4) & 0xFFL) << 16) | ((d.get(o + 5) & 0xFFL) << 8) |
+                           (d.get(o + 6) & 0xFFL);
+            default: return ((d.get(o) & 0xFFL) << 56) | ((d.get(o + 1) & 0xFFL) << 48) | ((d.get(o + 2) & 0xFFL) << 40) |
+                            ((d.get(o + 3) & 0xFFL) << 32) | ((d.get(o + 4) & 0xFFL) << 24) | ((d.get(o + 5) & 0xFFL) << 16) |
+                            ((d.get(o + 6) & 0xFFL) << 8) | (d.get(o + 7) & 0xFFL);
+        }
+    }
+}
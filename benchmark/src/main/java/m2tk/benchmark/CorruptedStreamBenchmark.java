@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.benchmark;
+
+import m2tk.encoding.Encoding;
+import m2tk.mpeg2.decoder.TransportPacketDecoder;
+import m2tk.mpeg2.decoder.element.AdaptationFieldDecoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 误码率不同的码流上定位负载与提取PCR：依靠异常处理损坏包的解码方式与 tryXXX 方法的对比。
+ * 理想情况下 tryXXX 方法的吞吐量不随误码率变化。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CorruptedStreamBenchmark
+{
+    static final int PACKETS = 1024;
+
+    @Param({"0", "1", "10", "30"})
+    public int errorPercent;
+
+    private byte[] stream;
+    private final Encoding packet = Encoding.flyweight();
+    private final Encoding field = Encoding.flyweight();
+    private final Encoding payload = Encoding.flyweight();
+    private final TransportPacketDecoder tsd = new TransportPacketDecoder();
+    private final AdaptationFieldDecoder afd = new AdaptationFieldDecoder();
+
+    @Setup
+    public void setup()
+    {
+        stream = SyntheticStreams.packets(PACKETS, 20241018L);
+        SyntheticStreams.corrupt(stream, errorPercent, 20241019L);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public void throwing(Blackhole bh)
+    {
+        for (int off = 0; off < stream.length; off += 188)
+        {
+            tsd.attach(packet.rebase(stream, off, 188));
+            try
+            {
+                bh.consume(tsd.getPayload(payload).size());
+                if (tsd.containsAdaptationField())
+                {
+                    afd.attach(tsd.getAdaptationField(field));
+                    if (afd.getProgramClockReferenceFlag() == 1)
+                        bh.consume(afd.getProgramClockReference(payload).readUINT40(0));
+                }
+            } catch (RuntimeException ex)
+            {
+                bh.consume(ex);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public void exceptionFree(Blackhole bh)
+    {
+        for (int off = 0; off < stream.length; off += 188)
+        {
+            tsd.attach(packet.rebase(stream, off, 188));
+            if (tsd.tryGetPayload(payload))
+                bh.consume(payload.size());
+            if (tsd.tryGetAdaptationField(field))
+            {
+                afd.attach(field);
+                bh.consume(afd.tryGetProgramClockReferenceValue());
+            }
+        }
+    }
+}
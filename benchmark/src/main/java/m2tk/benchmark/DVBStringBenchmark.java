@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.benchmark;
+
+import m2tk.dvb.DVB;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DVB 字符串解码（EN 300 468 附录A）：默认字符集（GBK）、UTF-8、ISO-8859-1 与查表解码的 ISO-8859-5。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DVBStringBenchmark
+{
+    @Param({"GBK", "UTF-8", "ISO-8859-1", "ISO-8859-5"})
+    public String charset;
+
+    private byte[] text;
+
+    @Setup
+    public void setup()
+    {
+        String sample;
+        switch (charset)
+        {
+            case "GBK":
+            case "UTF-8":
+                sample = "中央电视台综合频道 CCTV-1 新闻联播 天气预报";
+                break;
+            case "ISO-8859-5":
+                sample = "Первый канал - Новости, погода и спорт";
+                break;
+            default:
+                sample = "Das Erste - Tagesschau, Wetter und Sport";
+                break;
+        }
+        text = SyntheticStreams.dvbString(charset, sample);
+    }
+
+    @Benchmark
+    public String decodeString()
+    {
+        return DVB.decodeString(text, 0, text.length);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.benchmark;
+
+import m2tk.dvb.decoder.DescriptorDecoderRegistry;
+import m2tk.encoding.Encoding;
+import m2tk.dvb.decoder.descriptor.ShortEventDescriptorDecoder;
+import m2tk.mpeg2.decoder.DescriptorDecoder;
+import m2tk.mpeg2.decoder.DescriptorLoopCursor;
+import m2tk.mpeg2.decoder.DescriptorLoopDecoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述符循环遍历：列表、逐个回调、按标签查找，对应的游标（{@link DescriptorLoopCursor}）用法，
+ * 对同一循环按多个标签查询时有无标签索引的对比，
+ * 以及逐个尝试 isAttachable 与按标签分派（{@link DescriptorDecoderRegistry}）的对比。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DescriptorLoopBenchmark
+{
+    private Encoding loop;
+    private final DescriptorLoopDecoder decoder = new DescriptorLoopDecoder();
+    private final DescriptorLoopDecoder indexed = new DescriptorLoopDecoder();
+    private final DescriptorLoopCursor cursor = new DescriptorLoopCursor();
+    private final ShortEventDescriptorDecoder sed = new ShortEventDescriptorDecoder();
+    private final DescriptorDecoderRegistry registry = DescriptorDecoderRegistry.createDefault();
+    private final DescriptorDecoder[] candidates = new DescriptorDecoder[256];
+    private int candidateCount;
+
+    @Setup
+    public void setup()
+    {
+        loop = Encoding.wrap(SyntheticStreams.eventDescriptorLoop(new Random(20241018L)));
+        indexed.setIndexEnabled(true);
+        // 线性探测的候选列表按标签顺序排列，与常见的手写分派一致
+        for (int tag = 0; tag < 256; tag++)
+        {
+            DescriptorDecoder candidate = registry.lookup(tag);
+            if (candidate != null)
+                candidates[candidateCount++] = candidate;
+        }
+    }
+
+    @Benchmark
+    public void descriptorList(Blackhole bh)
+    {
+        decoder.attach(loop);
+        for (Encoding descriptor : decoder.getDescriptorList())
+            bh.consume(descriptor.readUINT8(0));
+    }
+
+    @Benchmark
+    public void forEach(Blackhole bh)
+    {
+        decoder.attach(loop);
+        decoder.forEach(descriptor -> bh.consume(descriptor.readUINT8(0)));
+    }
+
+    @Benchmark
+    public void findFirstDescriptor(Blackhole bh)
+    {
+        decoder.attach(loop);
+        bh.consume(decoder.findFirstDescriptor(0x55));
+    }
+
+    @Benchmark
+    public void cursorWalk(Blackhole bh)
+    {
+        cursor.reset(loop);
+        while (cursor.next())
+            bh.consume(cursor.tag());
+    }
+
+    @Benchmark
+    public void cursorFindTag(Blackhole bh)
+    {
+        cursor.reset(loop);
+        if (cursor.next(0x55))
+            bh.consume(cursor.payloadOffset());
+    }
+
+    @Benchmark
+    public void cursorAttach(Blackhole bh)
+    {
+        cursor.reset(loop);
+        if (cursor.next(ShortEventDescriptorDecoder.TAG) && cursor.attach(sed))
+            bh.consume(sed.getLanguageCode());
+    }
+
+    @Benchmark
+    public void multiTagQuery(Blackhole bh)
+    {
+        queryTags(decoder, bh);
+    }
+
+    @Benchmark
+    public void multiTagQueryIndexed(Blackhole bh)
+    {
+        queryTags(indexed, bh);
+    }
+
+    private void queryTags(DescriptorLoopDecoder dld, Blackhole bh)
+    {
+        // 服务分类时典型的一组查询：四个存在的标签与一个不存在的标签
+        dld.attach(loop);
+        bh.consume(dld.containsDescriptor(0x4D));
+        bh.consume(dld.containsDescriptor(0x54));
+        bh.consume(dld.getDescriptorCount(0x50));
+        bh.consume(dld.containsDescriptor(0x55));
+        bh.consume(dld.containsDescriptor(0x4E));
+    }
+
+    @Benchmark
+    public void dispatchLinearProbe(Blackhole bh)
+    {
+        decoder.attach(loop);
+        decoder.forEach(descriptor -> {
+            for (int i = 0; i < candidateCount; i++)
+            {
+                DescriptorDecoder candidate = candidates[i];
+                if (candidate.isAttachable(descriptor))
+                {
+                    candidate.attach(descriptor);
+                    bh.consume(candidate.getPayloadLength());
+                    break;
+                }
+            }
+        });
+    }
+
+    @Benchmark
+    public void dispatchRegistry(Blackhole bh)
+    {
+        registry.forEach(loop, 0x4E, dd -> bh.consume(dd.getPayloadLength()));
+    }
+}
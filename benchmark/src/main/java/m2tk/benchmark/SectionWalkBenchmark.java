@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.benchmark;
+
+import m2tk.dvb.SectionValidator;
+import m2tk.dvb.decoder.element.EventDescriptionDecoder;
+import m2tk.dvb.decoder.element.ServiceDescriptionDecoder;
+import m2tk.dvb.decoder.section.EITSectionDecoder;
+import m2tk.dvb.decoder.section.SDTSectionDecoder;
+import m2tk.encoding.Encoding;
+import m2tk.mpeg2.decoder.DescriptorLoopDecoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SDT 服务列表与 EIT 事件列表的遍历，包括进入每个条目的描述符循环。
+ * Trusted 版本先经 {@link SectionValidator} 校验，之后的字段读取不再检查边界。
+ * Flyweight 版本在各层复用 {@link Encoding#flyweight()} 创建的对象，遍历本身不分配内存。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SectionWalkBenchmark
+{
+    private Encoding sdt;
+    private Encoding eit;
+    private Encoding trustedEIT;
+    private final SDTSectionDecoder sdtd = new SDTSectionDecoder();
+    private final EITSectionDecoder eitd = new EITSectionDecoder();
+    private final ServiceDescriptionDecoder sdd = new ServiceDescriptionDecoder();
+    private final EventDescriptionDecoder edd = new EventDescriptionDecoder();
+    private final DescriptorLoopDecoder dld = new DescriptorLoopDecoder();
+    private final Encoding entry = Encoding.flyweight();
+    private final Encoding loop = Encoding.flyweight();
+    private final Encoding descriptor = Encoding.flyweight();
+
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(20241018L);
+        sdt = Encoding.wrap(SyntheticStreams.sdtSection(12, random));
+        eit = Encoding.wrap(SyntheticStreams.eitSection(40, random));
+        if (!sdtd.isAttachable(sdt) || !eitd.isAttachable(eit))
+            throw new IllegalStateException("bad synthetic section");
+        trustedEIT = Encoding.wrap(eit.getBytes());
+        if (!SectionValidator.validateAndTrust(trustedEIT))
+            throw new IllegalStateException("synthetic EIT failed validation");
+    }
+
+    @Benchmark
+    public void walkSDT(Blackhole bh)
+    {
+        sdtd.attach(sdt);
+        sdtd.forEachServiceDescription(service -> {
+            sdd.attach(service);
+            bh.consume(sdd.getServiceID());
+            dld.attach(sdd.getDescriptorLoop());
+            dld.forEach(descriptor -> bh.consume(descriptor.readUINT8(0)));
+        });
+    }
+
+    @Benchmark
+    public void walkEIT(Blackhole bh)
+    {
+        eitd.attach(eit);
+        eitd.forEachEventDescription(event -> {
+            edd.attach(event);
+            bh.consume(edd.getEventID());
+            bh.consume(edd.getStartTime());
+            dld.attach(edd.getDescriptorLoop());
+            dld.forEach(descriptor -> bh.consume(descriptor.readUINT8(0)));
+        });
+    }
+
+    @Benchmark
+    public void walkSDTFlyweight(Blackhole bh)
+    {
+        sdtd.attach(sdt);
+        sdtd.forEachServiceDescription(entry, service -> {
+            sdd.attach(service);
+            bh.consume(sdd.getServiceID());
+            dld.attach(sdd.getDescriptorLoop(loop));
+            dld.forEach(descriptor, d -> bh.consume(d.readUINT8(0)));
+        });
+    }
+
+    @Benchmark
+    public void walkEITFlyweight(Blackhole bh)
+    {
+        eitd.attach(eit);
+        eitd.forEachEventDescription(entry, event -> {
+            edd.attach(event);
+            bh.consume(edd.getEventID());
+            bh.consume(edd.getStartTime());
+            dld.attach(edd.getDescriptorLoop(loop));
+            dld.forEach(descriptor, d -> bh.consume(d.readUINT8(0)));
+        });
+    }
+
+    @Benchmark
+    public void walkEITTrusted(Blackhole bh)
+    {
+        eitd.attach(trustedEIT);
+        eitd.forEachEventDescription(entry, event -> {
+            edd.attach(event);
+            bh.consume(edd.getEventID());
+            bh.consume(edd.getStartTime());
+            dld.attach(edd.getDescriptorLoop(loop));
+            dld.forEach(descriptor, d -> bh.consume(d.readUINT8(0)));
+        });
+    }
+
+    @Benchmark
+    public boolean validateEIT()
+    {
+        return SectionValidator.validate(eit);
+    }
+}
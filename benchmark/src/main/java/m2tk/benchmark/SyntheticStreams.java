@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.benchmark;
+
+import m2tk.util.CRC32;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成数据：结构合法、内容接近真实码流的传输包、描述符循环与 SDT/EIT 段。
+ * 所有数据由固定种子生成，多次运行结果一致。
+ */
+final class SyntheticStreams
+{
+    static final int VIDEO_PID = 0x100;
+    static final int AUDIO_PID = 0x101;
+
+    private SyntheticStreams()
+    {
+    }
+
+    /**
+     * 生成一段传输包序列：约 90% 视频/音频负载包，每 40 个视频包携带一次 PCR，其余为 SI 与空包。
+     */
+    static byte[] packets(int count, long seed)
+    {
+        Random random = new Random(seed);
+        byte[] stream = new byte[count * 188];
+        int[] cc = new int[8192];
+        long pcrBase = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            int offset = i * 188;
+            int pid;
+            int kind = random.nextInt(100);
+            if (kind < 70)
+                pid = VIDEO_PID;
+            else if (kind < 90)
+                pid = AUDIO_PID;
+            else if (kind < 95)
+                pid = 0x11;
+            else
+                pid = 0x1FFF;
+
+            boolean pcr = (pid == VIDEO_PID && i % 40 == 0);
+            boolean pusi = (pid != 0x1FFF && random.nextInt(20) == 0);
+            int afc = pcr ? 0b11 : 0b01;
+
+            stream[offset] = 0x47;
+            stream[offset + 1] = (byte) ((pusi ? 0x40 : 0) | (pid >> 8));
+            stream[offset + 2] = (byte) pid;
+            stream[offset + 3] = (byte) ((afc << 4) | cc[pid]);
+            cc[pid] = (cc[pid] + 1) & 0xF;
+
+            int position = offset + 4;
+            if (pcr)
+            {
+                pcrBase += 3600 + random.nextInt(32);
+                int extension = random.nextInt(300);
+                stream[position] = 7;
+                stream[position + 1] = 0x10; // PCR_flag
+                stream[position + 2] = (byte) (pcrBase >>> 25);
+                stream[position + 3] = (byte) (pcrBase >>> 17);
+                stream[position + 4] = (byte) (pcrBase >>> 9);
+                stream[position + 5] = (byte) (pcrBase >>> 1);
+                stream[position + 6] = (byte) (((pcrBase & 1) << 7) | 0x7E | (extension >>> 8));
+                stream[position + 7] = (byte) extension;
+                position += 8;
+            }
+            for (int j = position; j < offset + 188; j++)
+                stream[j] = (byte) random.nextInt(256);
+        }
+        return stream;
+    }
+
+    /**
+     * 用PAT（节目1，PMT PID 0x20）与PMT（PCR与视频PID 0x100，音频PID 0x101）覆盖开头的两个包。
+     */
+    static void insertPSI(byte[] stream)
+    {
+        byte[] pat = section(0x00, 0x0001, new byte[]{0x00, 0x01, (byte) 0xE0, 0x20});
+        byte[] pmt = section(0x02, 0x0001, new byte[]{
+            (byte) 0xE0 | (VIDEO_PID >> 8), (byte) VIDEO_PID, (byte) 0xF0, 0x00,
+            0x02, (byte) (0xE0 | (VIDEO_PID >> 8)), (byte) VIDEO_PID, (byte) 0xF0, 0x00,
+            0x04, (byte) (0xE0 | (AUDIO_PID >> 8)), (byte) AUDIO_PID, (byte) 0xF0, 0x00});
+        sectionPacket(stream, 0, 0x0000, pat);
+        sectionPacket(stream, 188, 0x0020, pmt);
+    }
+
+    /**
+     * 生成每个包携带一个 EIT p/f actual 段的传输包序列：services 个业务，各有 section 0 与 section 1。
+     */
+    static byte[] eitPresentFollowingPackets(int services)
+    {
+        byte[] stream = new byte[services * 2 * 188];
+        byte[] body = {0x00, 0x01, 0x00, 0x01, 0x01, 0x4E}; // tsid, onid, segment_last, last_table_id
+        for (int i = 0; i < services * 2; i++)
+        {
+            byte[] eit = section(0x4E, i >> 1, i & 1, 1, body);
+            sectionPacket(stream, i * 188, 0x0012, eit);
+            stream[i * 188 + 3] = (byte) (0x10 | (i & 0xF));
+        }
+        return stream;
+    }
+
+    private static void sectionPacket(byte[] stream, int offset, int pid, byte[] section)
+    {
+        Arrays.fill(stream, offset, offset + 188, (byte) 0xFF);
+        stream[offset] = 0x47;
+        stream[offset + 1] = (byte) (0x40 | (pid >> 8));
+        stream[offset + 2] = (byte) pid;
+        stream[offset + 3] = 0x10;
+        stream[offset + 4] = 0; // pointer_field
+        System.arraycopy(section, 0, stream, offset + 5, section.length);
+    }
+
+    /**
+     * 按给定比例损坏传输包，模拟高误码率的卫星信号：置位 transport_error_indicator，
+     * 并随机改写 adaptation_field_control 或填入越界的 adaptation_field_length。
+     *
+     * @param percent 损坏包所占百分比
+     */
+    static void corrupt(byte[] stream, int percent, long seed)
+    {
+        Random random = new Random(seed);
+        for (int offset = 0; offset + 188 <= stream.length; offset += 188)
+        {
+            if (random.nextInt(100) >= percent)
+                continue;
+            stream[offset + 1] |= (byte) 0x80;
+            switch (random.nextInt(3))
+            {
+                case 0: // 保留值或只有适配字段（无负载）
+                    stream[offset + 3] = (byte) ((stream[offset + 3] & 0xCF) | (random.nextBoolean() ? 0x00 : 0x20));
+                    break;
+                case 1: // 适配字段长度越界
+                    stream[offset + 3] = (byte) (stream[offset + 3] | 0x30);
+                    stream[offset + 4] = (byte) (184 + random.nextInt(72));
+                    break;
+                default: // 标志位损坏：可选字段超出适配字段范围
+                    stream[offset + 3] = (byte) (stream[offset + 3] | 0x30);
+                    stream[offset + 4] = (byte) random.nextInt(4);
+                    stream[offset + 5] = (byte) 0x1F;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 生成一个典型的 EIT 事件描述符循环：short_event、content、parental_rating、component。
+     */
+    static byte[] eventDescriptorLoop(Random random)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] name = text(random, 12 + random.nextInt(12));
+        byte[] text = text(random, 30 + random.nextInt(40));
+        out.write(0x4D);
+        out.write(3 + 1 + name.length + 1 + text.length);
+        out.writeBytes("chi".getBytes());
+        out.write(name.length);
+        out.writeBytes(name);
+        out.write(text.length);
+        out.writeBytes(text);
+
+        out.write(0x54);
+        out.write(2);
+        out.write(0x10 + random.nextInt(0x80));
+        out.write(0);
+
+        out.write(0x55);
+        out.write(4);
+        out.writeBytes("CHN".getBytes());
+        out.write(random.nextInt(16));
+
+        out.write(0x50);
+        out.write(6 + 4);
+        out.write(0xF1);
+        out.write(0x03);
+        out.write(random.nextInt(256));
+        out.writeBytes("chi".getBytes());
+        out.writeBytes(new byte[]{0x15, 'H', 'D', '1'});
+        return out.toByteArray();
+    }
+
+    /**
+     * 生成包含指定数量服务的 SDT_actual 段（含正确的 CRC_32）。
+     */
+    static byte[] sdtSection(int services, Random random)
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(0x00);
+        body.write(0x01); // original_network_id
+        body.write(0xFF);
+        for (int i = 0; i < services; i++)
+        {
+            byte[] provider = text(random, 6 + random.nextInt(6));
+            byte[] name = text(random, 8 + random.nextInt(10));
+            int loopLength = 2 + 3 + provider.length + name.length;
+            int serviceId = 100 + i;
+            body.write(serviceId >> 8);
+            body.write(serviceId);
+            body.write(0xFC | 0b11);
+            body.write(0x80 | (loopLength >> 8));
+            body.write(loopLength);
+            body.write(0x48);
+            body.write(3 + provider.length + name.length);
+            body.write(0x01);
+            body.write(provider.length);
+            body.writeBytes(provider);
+            body.write(name.length);
+            body.writeBytes(name);
+        }
+        return section(0x42, 0x0001, body.toByteArray());
+    }
+
+    /**
+     * 生成包含指定数量事件的 EIT schedule 段（含正确的 CRC_32）。
+     */
+    static byte[] eitSection(int events, Random random)
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(new byte[]{0x00, 0x01, 0x00, 0x01, 0x00, 0x50}); // tsid, onid, segment_last, last_table_id
+        for (int i = 0; i < events && body.size() < 3800; i++)
+        {
+            byte[] loop = eventDescriptorLoop(random);
+            body.write(i >> 8);
+            body.write(i);
+            body.writeBytes(new byte[]{(byte) 0xE8, 0x2A, 0x12, 0x00, 0x00, 0x00, 0x45, 0x00}); // start_time, duration
+            body.write(0x80 | (loop.length >> 8));
+            body.write(loop.length);
+            body.writeBytes(loop);
+        }
+        return section(0x50, 0x0064, body.toByteArray());
+    }
+
+    /**
+     * 按 DVB 字符集规则编码字符串（不含长度字节）。
+     */
+    static byte[] dvbString(String charset, String text)
+    {
+        switch (charset)
+        {
+            case "GBK":
+                return text.getBytes(Charset.forName("GBK"));
+            case "UTF-8":
+                return prefix(new byte[]{0x15}, text.getBytes(Charset.forName("UTF-8")));
+            case "ISO-8859-1":
+                return prefix(new byte[]{0x10, 0x00, 0x01}, text.getBytes(Charset.forName("ISO-8859-1")));
+            case "ISO-8859-5":
+                return prefix(new byte[]{0x01}, text.getBytes(Charset.forName("ISO-8859-5")));
+            default:
+                throw new IllegalArgumentException("unsupported charset: " + charset);
+        }
+    }
+
+    private static byte[] section(int tableId, int extension, byte[] body)
+    {
+        return section(tableId, extension, 0, 0, body);
+    }
+
+    private static byte[] section(int tableId, int extension, int sectionNumber, int lastSectionNumber, byte[] body)
+    {
+        int sectionLength = 5 + body.length + 4;
+        byte[] section = new byte[3 + sectionLength];
+        section[0] = (byte) tableId;
+        section[1] = (byte) (0xF0 | (sectionLength >> 8));
+        section[2] = (byte) sectionLength;
+        section[3] = (byte) (extension >> 8);
+        section[4] = (byte) extension;
+        section[5] = (byte) 0xC3; // version 1, current
+        section[6] = (byte) sectionNumber;
+        section[7] = (byte) lastSectionNumber;
+        System.arraycopy(body, 0, section, 8, body.length);
+        long crc = CRC32.checksum(section, 0, section.length - 4);
+        section[section.length - 4] = (byte) (crc >> 24);
+        section[section.length - 3] = (byte) (crc >> 16);
+        section[section.length - 2] = (byte) (crc >> 8);
+        section[section.length - 1] = (byte) crc;
+        return section;
+    }
+
+    private static byte[] text(Random random, int chars)
+    {
+        StringBuilder sb = new StringBuilder(chars);
+        for (int i = 0; i < chars; i++)
+            sb.append((i % 3 == 0) ? (char) ('a' + random.nextInt(26)) : (char) (0x4E00 + random.nextInt(0x1000)));
+        return dvbString("GBK", sb.toString());
+    }
+
+    private static byte[] prefix(byte[] head, byte[] data)
+    {
+        byte[] result = new byte[head.length + data.length];
+        System.arraycopy(head, 0, result, 0, head.length);
+        System.arraycopy(data, 0, result, head.length, data.length);
+        return result;
+    }
+}
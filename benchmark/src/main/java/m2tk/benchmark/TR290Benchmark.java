@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.benchmark;
+
+import m2tk.dvb.tr290.Priority1Checker;
+import m2tk.dvb.tr290.Priority2Checker;
+import m2tk.dvb.tr290.Priority3Checker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TR 101 290 检查的单包处理开销。码流开头是PAT与PMT，时间戳按每 {@link #PACKETS} 个包100ms递增，
+ * 使表的重复周期与真实码流相当。200Mbps的复用流约为每毫秒133个包。
+ * {@link #priority3EIT()} 的码流全部由 EIT p/f 段组成（{@link #EIT_SERVICES} 个业务），用于衡量分段跟踪的开销。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TR290Benchmark
+{
+    static final int PACKETS = 1024;
+    static final long PACKET_NANOS = 100_000_000L / PACKETS;
+    static final int EIT_SERVICES = 8192;
+
+    private byte[] stream;
+    private byte[] eitStream;
+    private long errors;
+    private long timestamp;
+    private final Priority1Checker priority1 = new Priority1Checker((code, pid, index, time) -> errors++);
+    private final Priority2Checker priority2 = new Priority2Checker((code, pid, index, time) -> errors++);
+    private final Priority3Checker priority3 = new Priority3Checker((code, pid, index, time) -> errors++);
+    private final Priority3Checker priority3EIT = new Priority3Checker((code, pid, index, time) -> errors++);
+
+    @Setup
+    public void setup()
+    {
+        stream = SyntheticStreams.packets(PACKETS, 20241018L);
+        SyntheticStreams.insertPSI(stream);
+        eitStream = SyntheticStreams.eitPresentFollowingPackets(EIT_SERVICES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public long priority1()
+    {
+        for (int off = 0; off < stream.length; off += 188)
+        {
+            priority1.check(stream, off, timestamp);
+            timestamp += PACKET_NANOS;
+        }
+        return errors;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public long priority2()
+    {
+        for (int off = 0; off < stream.length; off += 188)
+        {
+            priority2.check(stream, off, timestamp);
+            timestamp += PACKET_NANOS;
+        }
+        return errors;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public long priority3()
+    {
+        for (int off = 0; off < stream.length; off += 188)
+        {
+            priority3.check(stream, off, timestamp);
+            timestamp += PACKET_NANOS;
+        }
+        return errors;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EIT_SERVICES * 2)
+    public long priority3EIT()
+    {
+        for (int off = 0; off < eitStream.length; off += 188)
+        {
+            priority3EIT.check(eitStream, off, timestamp);
+            timestamp += PACKET_NANOS;
+        }
+        return errors;
+    }
+}
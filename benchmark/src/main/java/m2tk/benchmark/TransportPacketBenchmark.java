@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.benchmark;
+
+import m2tk.encoding.Encoding;
+import m2tk.mpeg2.TransportPacketColumns;
+import m2tk.mpeg2.TransportPackets;
+import m2tk.mpeg2.analyzer.ContinuityAnalyzer;
+import m2tk.mpeg2.analyzer.PCRAnalyzer;
+import m2tk.mpeg2.decoder.TransportPacketDecoder;
+import m2tk.mpeg2.decoder.element.AdaptationFieldDecoder;
+import m2tk.mpeg2.decoder.element.ProgramClockReferenceDecoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 传输包解码热点：包头字段读取、负载定位、从适配字段中提取PCR以及PCR分析（{@link PCRAnalyzer}）。
+ * static 版本使用 {@link TransportPackets} 直接在缓冲区上读取，columns 版本使用
+ * {@link TransportPacketColumns} 批量解码后在数组上统计，与解码器版本对照。
+ * 每次操作处理 {@link #PACKETS} 个包，建议配合 {@code -prof gc} 观察每次操作的分配量。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransportPacketBenchmark
+{
+    static final int PACKETS = 1024;
+
+    private byte[] stream;
+    private Encoding[] packets;
+    private final TransportPacketDecoder tsd = new TransportPacketDecoder();
+    private final AdaptationFieldDecoder afd = new AdaptationFieldDecoder();
+    private final ProgramClockReferenceDecoder pcrd = new ProgramClockReferenceDecoder();
+    private final TransportPacketColumns columns = new TransportPacketColumns(PACKETS);
+    private final long[] pidCounts = new long[8193];
+    private final PCRAnalyzer analyzer = new PCRAnalyzer();
+    private final ContinuityAnalyzer continuity = new ContinuityAnalyzer();
+
+    @Setup
+    public void setup()
+    {
+        stream = SyntheticStreams.packets(PACKETS, 20241018L);
+        packets = new Encoding[PACKETS];
+        for (int i = 0; i < PACKETS; i++)
+            packets[i] = Encoding.wrap(stream, i * 188, 188);
+
+        for (int i = 0; i < PACKETS; i++)
+        {
+            tsd.attach(packets[i]);
+            int off = i * 188;
+            if (tsd.getPID() != TransportPackets.pid(stream, off) ||
+                tsd.getContinuityCounter() != TransportPackets.cc(stream, off) ||
+                tsd.getPayloadStartPosition() != TransportPackets.payloadOffset(stream, off))
+                throw new IllegalStateException("TransportPackets self-check failed at " + i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public void headerFields(Blackhole bh)
+    {
+        for (Encoding packet : packets)
+        {
+            tsd.attach(packet);
+            bh.consume(tsd.getPID());
+            bh.consume(tsd.getContinuityCounter());
+            bh.consume(tsd.getAdaptationFieldControl());
+            bh.consume(tsd.containsPayloadUnitStartByte());
+            bh.consume(tsd.containsTransportError());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public void wrapAndGetPayload(Blackhole bh)
+    {
+        for (int i = 0; i < PACKETS; i++)
+        {
+            tsd.attach(Encoding.wrap(stream, i * 188, 188));
+            if (tsd.containsPayload())
+                bh.consume(tsd.getPayload());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public void extractPCR(Blackhole bh)
+    {
+        for (Encoding packet : packets)
+        {
+            tsd.attach(packet);
+            if (!tsd.containsUsefulAdaptationField())
+                continue;
+            afd.attach(tsd.getAdaptationField());
+            if (afd.getProgramClockReferenceFlag() == 1)
+            {
+                pcrd.attach(afd.getProgramClockReference());
+                bh.consume(pcrd.getProgramClockReferenceValue());
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public void headerFieldsStatic(Blackhole bh)
+    {
+        for (int off = 0; off < stream.length; off += 188)
+        {
+            bh.consume(TransportPackets.pid(stream, off));
+            bh.consume(TransportPackets.cc(stream, off));
+            bh.consume(TransportPackets.afc(stream, off));
+            bh.consume(TransportPackets.pusi(stream, off) == 1);
+            bh.consume(TransportPackets.tei(stream, off) == 1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public void extractPCRStatic(Blackhole bh)
+    {
+        for (int off = 0; off < stream.length; off += 188)
+        {
+            if (TransportPackets.hasPCR(stream, off))
+                bh.consume(TransportPackets.pcr(stream, off));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public void pcrAnalyzer(Blackhole bh)
+    {
+        for (int off = 0; off < stream.length; off += 188)
+            bh.consume(analyzer.analyze(stream, off));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public void continuityAnalyzer(Blackhole bh)
+    {
+        for (int off = 0; off < stream.length; off += 188)
+            bh.consume(continuity.analyze(stream, off));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public long[] columnsPIDHistogram()
+    {
+        columns.decode(stream, 0, PACKETS);
+        int[] pid = columns.pid;
+        for (int i = 0; i < PACKETS; i++)
+            pidCounts[pid[i]]++;
+        return pidCounts;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public long[] staticPIDHistogram()
+    {
+        for (int off = 0; off < stream.length; off += 188)
+            pidCounts[TransportPackets.pid(stream, off)]++;
+        return pidCounts;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public TransportPacketColumns columnsDecode()
+    {
+        columns.decode(stream, 0, PACKETS);
+        return columns;
+    }
+}
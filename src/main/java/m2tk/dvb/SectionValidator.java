@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.dvb;
+
+import m2tk.encoding.Encoding;
+import m2tk.encoding.StructureValidator;
+import m2tk.mpeg2.MPEG2;
+
+/**
+ * PSI/SI段的一次性结构校验。<p>
+ * 按 table_id 逐层检查段内所有嵌套的长度字段：section_length、描述符循环、
+ * 节目元素/传输流/业务/事件循环以及其中每个条目的长度，要求每一层都恰好填满其上层给出的范围。
+ * 校验通过的段被标记为可信（{@link Encoding#isTrusted()}），之后解码器在其上读取字段时不再逐次检查边界；
+ * 损坏的段在校验时即被拒绝。描述符只校验到 tag/length 一层，其内部字段仍按常规检查边界
+ * （见 {@link m2tk.mpeg2.decoder.DescriptorDecoder#attach(Encoding)}）。
+ * <p>
+ * 支持 PAT、CAT、PMT、TSDT、NIT、BAT、SDT、EIT、TDT、TOT；其他 table_id 的结构无法校验，一律返回 false（不标记可信），
+ * 这类段仍可按常规（逐次检查边界）解码。校验不包括CRC。
+ */
+public final class SectionValidator extends StructureValidator
+{
+    private SectionValidator()
+    {
+    }
+
+    /**
+     * 校验段结构，通过后将其标记为可信。
+     *
+     * @param section 段数据
+     * @return 结构是否完整有效
+     */
+    public static boolean validateAndTrust(Encoding section)
+    {
+        if (!validate(section))
+            return false;
+        markTrusted(section);
+        return true;
+    }
+
+    /**
+     * 校验段结构（不改变段的可信状态）。
+     *
+     * @param section 段数据
+     * @return 结构是否完整有效
+     */
+    public static boolean validate(Encoding section)
+    {
+        int size = section.size();
+        if (size < MPEG2.SECTION_HEADER_LENGTH || size > MPEG2.MAX_PRIVATE_SECTION_LENGTH)
+            return false;
+        if (MPEG2.SECTION_HEADER_LENGTH + (section.readUINT16(1) & 0xFFF) != size)
+            return false;
+
+        boolean syntax = (section.readUINT8(1) & 0x80) != 0;
+        if (syntax && size < MPEG2.MIN_PSI_SECTION_LENGTH)
+            return false;
+
+        int end = size - MPEG2.CHECKSUM_LENGTH; // 长格式段的CRC_32位置
+        int tableId = section.readUINT8(0);
+        switch (tableId)
+        {
+            case 0x00: // PAT
+                return syntax && (end - 8) % 4 == 0;
+            case 0x01: // CAT
+            case 0x03: // TSDT
+                return syntax && validateDescriptorLoop(section, 8, end);
+            case 0x02: // PMT
+                return syntax && validatePMT(section, end);
+            case 0x40: // NIT
+            case 0x41:
+            case 0x4A: // BAT
+                return syntax && validateNetworkOrBouquet(section, end);
+            case 0x42: // SDT
+            case 0x46:
+                return syntax && size >= 15 && validateEntries(section, 11, end, 5, 3);
+            case 0x70: // TDT
+                return size == 8;
+            case 0x73: // TOT
+                return validateTOT(section, size);
+            default:
+                if (tableId >= 0x4E && tableId <= 0x6F) // EIT
+                    return syntax && size >= 18 && validateEntries(section, 14, end, 12, 10);
+                return false; // 结构未知，不能信任
+        }
+    }
+
+    /**
+     * 校验描述符循环：各描述符恰好填满 [from, to)。
+     */
+    public static boolean validateDescriptorLoop(Encoding encoding, int from, int to)
+    {
+        if (from > to || to > encoding.size())
+            return false;
+        while (from < to)
+        {
+            if (from + MPEG2.DESCRIPTOR_HEADER_LENGTH > to)
+                return false;
+            from += MPEG2.DESCRIPTOR_HEADER_LENGTH + encoding.readUINT8(from + 1);
+        }
+        return from == to;
+    }
+
+    /**
+     * 校验条目循环，每个条目由固定长度的头和其后的描述符循环组成，
+     * 描述符循环长度为头中 lengthPosition 处的12位字段。
+     */
+    private static boolean validateEntries(Encoding encoding, int from, int to, int headerLength, int lengthPosition)
+    {
+        while (from < to)
+        {
+            if (from + headerLength > to)
+                return false;
+            int loopStart = from + headerLength;
+            int loopEnd = loopStart + (encoding.readUINT16(from + lengthPosition) & 0xFFF);
+            if (loopEnd > to || !validateDescriptorLoop(encoding, loopStart, loopEnd))
+                return false;
+            from = loopEnd;
+        }
+        return from == to;
+    }
+
+    private static boolean validatePMT(Encoding section, int end)
+    {
+        if (end < 12)
+            return false;
+        int loopEnd = 12 + (section.readUINT16(10) & 0xFFF);
+        return loopEnd <= end &&
+               validateDescriptorLoop(section, 12, loopEnd) &&
+               validateEntries(section, loopEnd, end, 5, 3);
+    }
+
+    private static boolean validateNetworkOrBouquet(Encoding section, int end)
+    {
+        if (end < 12)
+            return false;
+        int loopEnd = 10 + (section.readUINT16(8) & 0xFFF);
+        if (loopEnd + 2 > end || !validateDescriptorLoop(section, 10, loopEnd))
+            return false;
+        int streamsStart = loopEnd + 2;
+        int streamsEnd = streamsStart + (section.readUINT16(loopEnd) & 0xFFF);
+        return streamsEnd == end && validateEntries(section, streamsStart, streamsEnd, 6, 4);
+    }
+
+    private static boolean validateTOT(Encoding section, int size)
+    {
+        int end = size - MPEG2.CHECKSUM_LENGTH;
+        if (end < 10)
+            return false;
+        int loopEnd = 10 + (section.readUINT16(8) & 0xFFF);
+        return loopEnd == end && validateDescriptorLoop(section, 10, loopEnd);
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.dvb.decoder;
+
+import m2tk.dvb.decoder.descriptor.*;
+import m2tk.encoding.Encoding;
+import m2tk.mpeg2.MPEG2;
+import m2tk.mpeg2.decoder.DescriptorDecoder;
+import m2tk.mpeg2.decoder.descriptor.CADescriptorDecoder;
+import m2tk.mpeg2.decoder.descriptor.ISO639LanguageDescriptorDecoder;
+
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 按描述符标签分派的描述符解码器注册表。<p>
+ * 标签到解码器的映射保存在256项的数组中，分派只需一次数组访问，不必逐个尝试 isAttachable。
+ * 查找顺序为：私有描述符（按 private_data_specifier 登记）、限定 table_id 的描述符、通用描述符。
+ * 私有描述符由同一循环中前面出现的 private_data_specifier_descriptor 决定归属，
+ * {@link #forEach(Encoding, int, Consumer)} 遍历时会自动跟踪。
+ * <p>
+ * 注册表持有解码器实例，与解码器一样不能在线程间共享，每个线程应使用自己的注册表。
+ */
+public final class DescriptorDecoderRegistry
+{
+    /**
+     * 表示没有 private_data_specifier 的取值。
+     */
+    public static final long NO_PRIVATE_DATA_SPECIFIER = -1;
+
+    /**
+     * 表示不限定 table_id 的取值。
+     */
+    public static final int ANY_TABLE = -1;
+
+    private final DescriptorDecoder[] common = new DescriptorDecoder[256];
+    private final DescriptorDecoder[][] scoped = new DescriptorDecoder[256][];
+    private final HashMap<Long, DescriptorDecoder[]> privates = new HashMap<>();
+    private final Encoding view = Encoding.flyweight();
+    private DescriptorDecoder fallback;
+
+    // 最近一次查询的私有描述符表，避免热路径上的装箱与哈希查找。
+    private long cachedSpecifier = NO_PRIVATE_DATA_SPECIFIER;
+    private DescriptorDecoder[] cachedPrivates;
+
+    /**
+     * @return 登记了全部DVB（EN 300 468）与MPEG-2通用描述符解码器的注册表
+     */
+    public static DescriptorDecoderRegistry createDefault()
+    {
+        DescriptorDecoderRegistry registry = new DescriptorDecoderRegistry();
+        registry.register(0x09, new CADescriptorDecoder());
+        registry.register(ISO639LanguageDescriptorDecoder.TAG, new ISO639LanguageDescriptorDecoder());
+        registry.register(NetworkNameDescriptorDecoder.TAG, new NetworkNameDescriptorDecoder());
+        registry.register(ServiceListDescriptorDecoder.TAG, new ServiceListDescriptorDecoder());
+        registry.register(StuffingDescriptorDecoder.TAG, new StuffingDescriptorDecoder());
+        registry.register(SatelliteDeliverySystemDescriptorDecoder.TAG, new SatelliteDeliverySystemDescriptorDecoder());
+        registry.register(CableDeliverySystemDescriptorDecoder.TAG, new CableDeliverySystemDescriptorDecoder());
+        registry.register(BouquetNameDescriptorDecoder.TAG, new BouquetNameDescriptorDecoder());
+        registry.register(ServiceDescriptorDecoder.TAG, new ServiceDescriptorDecoder());
+        registry.register(CountryAvailabilityDescriptorDecoder.TAG, new CountryAvailabilityDescriptorDecoder());
+        registry.register(LinkageDescriptorDecoder.TAG, new LinkageDescriptorDecoder());
+        registry.register(NVODReferenceDescriptorDecoder.TAG, new NVODReferenceDescriptorDecoder());
+        registry.register(TimeShiftedServiceDescriptorDecoder.TAG, new TimeShiftedServiceDescriptorDecoder());
+        registry.register(ShortEventDescriptorDecoder.TAG, new ShortEventDescriptorDecoder());
+        registry.register(ExtendedEventDescriptorDecoder.TAG, new ExtendedEventDescriptorDecoder());
+        registry.register(TimeShiftedEventDescriptorDecoder.TAG, new TimeShiftedEventDescriptorDecoder());
+        registry.register(ComponentDescriptorDecoder.TAG, new ComponentDescriptorDecoder());
+        registry.register(StreamIdentifierDescriptorDecoder.TAG, new StreamIdentifierDescriptorDecoder());
+        registry.register(CAIdentifierDescriptorDecoder.TAG, new CAIdentifierDescriptorDecoder());
+        registry.register(ContentDescriptorDecoder.TAG, new ContentDescriptorDecoder());
+        registry.register(ParentalRatingDescriptorDecoder.TAG, new ParentalRatingDescriptorDecoder());
+        registry.register(LocalTimeOffsetDescriptorDecoder.TAG, new LocalTimeOffsetDescriptorDecoder());
+        registry.register(SubtitlingDescriptorDecoder.TAG, new SubtitlingDescriptorDecoder());
+        registry.register(TerrestrialDeliverySystemDescriptorDecoder.TAG, new TerrestrialDeliverySystemDescriptorDecoder());
+        registry.register(MultilingualNetworkNameDescriptorDecoder.TAG, new MultilingualNetworkNameDescriptorDecoder());
+        registry.register(MultilingualBouquetNameDescriptorDecoder.TAG, new MultilingualBouquetNameDescriptorDecoder());
+        registry.register(MultilingualServiceNameDescriptorDecoder.TAG, new MultilingualServiceNameDescriptorDecoder());
+        registry.register(MultilingualComponentDescriptorDecoder.TAG, new MultilingualComponentDescriptorDecoder());
+        registry.register(PrivateDataSpecifierDescriptorDecoder.TAG, new PrivateDataSpecifierDescriptorDecoder());
+        registry.register(ServiceAvailabilityDescriptorDecoder.TAG, new ServiceAvailabilityDescriptorDecoder());
+        registry.register(FrequencyListDescriptorDecoder.TAG, new FrequencyListDescriptorDecoder());
+        registry.register(DataBroadcastDescriptorDecoder.TAG, new DataBroadcastDescriptorDecoder());
+        registry.register(ScramblingDescriptorDecoder.TAG, new ScramblingDescriptorDecoder());
+        registry.register(DataBroadcastIdentifierDescriptorDecoder.TAG, new DataBroadcastIdentifierDescriptorDecoder());
+        registry.register(TransportStreamDescriptorDecoder.TAG, new TransportStreamDescriptorDecoder());
+        registry.register(AncillaryDataDescriptorDecoder.TAG, new AncillaryDataDescriptorDecoder());
+        registry.register(AnnouncementSupportDescriptorDecoder.TAG, new AnnouncementSupportDescriptorDecoder());
+        registry.register(AdaptationFieldDataDescriptorDecoder.TAG, new AdaptationFieldDataDescriptorDecoder());
+        return registry;
+    }
+
+    /**
+     * 登记通用描述符解码器（不限定 table_id）。
+     */
+    public void register(int tag, DescriptorDecoder decoder)
+    {
+        common[checkTag(tag)] = Objects.requireNonNull(decoder);
+    }
+
+    /**
+     * 登记只在指定 table_id 的表中有效的描述符解码器，优先于同标签的通用解码器。
+     */
+    public void register(int tableId, int tag, DescriptorDecoder decoder)
+    {
+        if (tableId < MPEG2.MIN_TABLE_ID || tableId > MPEG2.MAX_TABLE_ID)
+            throw new IllegalArgumentException("invalid table_id: " + tableId);
+        Objects.requireNonNull(decoder);
+        DescriptorDecoder[] decoders = scoped[tableId];
+        if (decoders == null)
+            scoped[tableId] = decoders = new DescriptorDecoder[256];
+        decoders[checkTag(tag)] = decoder;
+    }
+
+    /**
+     * 登记私有描述符解码器，只在循环中前面出现了取值为 privateDataSpecifier 的
+     * private_data_specifier_descriptor 时生效，优先于其他登记。
+     */
+    public void registerPrivate(long privateDataSpecifier, int tag, DescriptorDecoder decoder)
+    {
+        if (privateDataSpecifier < 0 || privateDataSpecifier > 0xFFFFFFFFL)
+            throw new IllegalArgumentException("invalid private_data_specifier: " + privateDataSpecifier);
+        Objects.requireNonNull(decoder);
+        privates.computeIfAbsent(privateDataSpecifier, key -> new DescriptorDecoder[256])[checkTag(tag)] = decoder;
+        cachedSpecifier = NO_PRIVATE_DATA_SPECIFIER;
+        cachedPrivates = null;
+    }
+
+    /**
+     * 设置未登记标签使用的解码器（如通用的 {@link DescriptorDecoder}），为null时跳过未登记的描述符。
+     */
+    public void setFallback(DescriptorDecoder decoder)
+    {
+        fallback = decoder;
+    }
+
+    public DescriptorDecoder lookup(int tag)
+    {
+        DescriptorDecoder decoder = common[tag & 0xFF];
+        return (decoder != null) ? decoder : fallback;
+    }
+
+    public DescriptorDecoder lookup(int tableId, int tag)
+    {
+        if (tableId >= 0)
+        {
+            DescriptorDecoder[] decoders = scoped[tableId & 0xFF];
+            if (decoders != null && decoders[tag & 0xFF] != null)
+                return decoders[tag & 0xFF];
+        }
+        return lookup(tag);
+    }
+
+    public DescriptorDecoder lookup(int tableId, long privateDataSpecifier, int tag)
+    {
+        if (privateDataSpecifier >= 0)
+        {
+            DescriptorDecoder[] decoders = privateDecoders(privateDataSpecifier);
+            if (decoders != null && decoders[tag & 0xFF] != null)
+                return decoders[tag & 0xFF];
+        }
+        return lookup(tableId, tag);
+    }
+
+    /**
+     * 将对应的解码器关联到描述符。
+     *
+     * @param descriptor           描述符
+     * @param tableId              所在表的 table_id，或 {@link #ANY_TABLE}
+     * @param privateDataSpecifier 生效的 private_data_specifier，或 {@link #NO_PRIVATE_DATA_SPECIFIER}
+     * @return 关联成功的解码器；没有对应的解码器或描述符不完整时返回null
+     */
+    public DescriptorDecoder attach(Encoding descriptor, int tableId, long privateDataSpecifier)
+    {
+        DescriptorDecoder decoder = lookup(tableId, privateDataSpecifier, descriptor.readUINT8(0));
+        if (decoder == null || !decoder.isAttachable(descriptor))
+            return null;
+        decoder.attach(descriptor);
+        return decoder;
+    }
+
+    /**
+     * 遍历描述符循环，把每个描述符交给对应的解码器（已关联）再传给consumer；
+     * 遍历过程中跟踪 private_data_specifier_descriptor，以确定后续私有描述符的解码器。
+     * 未登记或无法关联的描述符被跳过，遇到长度越界的描述符时遍历结束。
+     * <p>
+     * 解码器关联的是注册表内部复用的视图，不要在回调之外保存，也不要在回调中嵌套调用本方法。
+     *
+     * @param loop     描述符循环
+     * @param tableId  所在表的 table_id，或 {@link #ANY_TABLE}
+     * @param consumer 解码器处理器
+     * @return 传给consumer的描述符个数
+     */
+    public int forEach(Encoding loop, int tableId, Consumer<DescriptorDecoder> consumer)
+    {
+        Objects.requireNonNull(consumer);
+        long specifier = NO_PRIVATE_DATA_SPECIFIER;
+        int count = 0;
+        int from = 0;
+        int to = loop.size();
+        while (from + MPEG2.DESCRIPTOR_HEADER_LENGTH <= to)
+        {
+            int tag = loop.readUINT8(from);
+            int length = MPEG2.DESCRIPTOR_HEADER_LENGTH + loop.readUINT8(from + 1);
+            if (from + length > to)
+                break;
+
+            if (tag == PrivateDataSpecifierDescriptorDecoder.TAG && length == 6)
+                specifier = loop.readUINT32(from + 2);
+
+            DescriptorDecoder decoder = lookup(tableId, specifier, tag);
+            if (decoder != null)
+            {
+                loop.readSelector(from, length, view);
+                if (decoder.isAttachable(view))
+                {
+                    decoder.attach(view);
+                    consumer.accept(decoder);
+                    count++;
+                }
+            }
+            from += length;
+        }
+        return count;
+    }
+
+    private DescriptorDecoder[] privateDecoders(long privateDataSpecifier)
+    {
+        if (privateDataSpecifier != cachedSpecifier)
+        {
+            if (privates.isEmpty())
+                return null;
+            cachedPrivates = privates.get(privateDataSpecifier);
+            cachedSpecifier = privateDataSpecifier;
+        }
+        return cachedPrivates;
+    }
+
+    private static int checkTag(int tag)
+    {
+        if (tag < MPEG2.MIN_DESCRIPTOR_TAG || tag > MPEG2.MAX_DESCRIPTOR_TAG)
+            throw new IllegalArgumentException("invalid descriptor tag: " + tag);
+        return tag;
+    }
+}
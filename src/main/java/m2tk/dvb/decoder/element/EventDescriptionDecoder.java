@@ -56,4 +56,10 @@ public class EventDescriptionDecoder extends Decoder
         int len = encoding.readUINT16(10) & 0xFFF;
         return encoding.readSelector(12, len);
     }
+
+    public Encoding getDescriptorLoop(Encoding target)
+    {
+        int len = encoding.readUINT16(10) & 0xFFF;
+        return encoding.readSelector(12, len, target);
+    }
 }
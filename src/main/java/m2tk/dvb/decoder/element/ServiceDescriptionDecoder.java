@@ -56,4 +56,10 @@ public class ServiceDescriptionDecoder extends Decoder
         int len = encoding.readUINT16(3) & 0xFFF;
         return encoding.readSelector(5, len);
     }
+
+    public Encoding getDescriptorLoop(Encoding target)
+    {
+        int len = encoding.readUINT16(3) & 0xFFF;
+        return encoding.readSelector(5, len, target);
+    }
 }
@@ -41,4 +41,10 @@ public class TransportStreamDescriptionDecoder extends Decoder
         int len = encoding.readUINT16(4) & 0xFFF;
         return encoding.readSelector(6, len);
     }
+
+    public Encoding getDescriptorLoop(Encoding target)
+    {
+        int len = encoding.readUINT16(4) & 0xFFF;
+        return encoding.readSelector(6, len, target);
+    }
 }
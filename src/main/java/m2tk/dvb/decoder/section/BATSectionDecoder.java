@@ -48,6 +48,12 @@ public class BATSectionDecoder extends PSISectionDecoder
         return encoding.readSelector(10, len);
     }
 
+    public Encoding getDescriptorLoop(Encoding target)
+    {
+        int len = encoding.readUINT16(8) & 0xFFF;
+        return encoding.readSelector(10, len, target);
+    }
+
     public Encoding[] getTransportStreamDescriptionList()
     {
         ArrayList<Encoding> list = new ArrayList<>();
@@ -75,4 +81,19 @@ public class BATSectionDecoder extends PSISectionDecoder
             from += length;
         }
     }
+
+    public void forEachTransportStreamDescription(Encoding cursor, Consumer<Encoding> consumer)
+    {
+        Objects.requireNonNull(cursor);
+        Objects.requireNonNull(consumer);
+        int from = 10 + (encoding.readUINT16(8) & 0xFFF) + 2;
+        int to = encoding.size() - MPEG2.CHECKSUM_LENGTH;
+        while (from < to)
+        {
+            int length = 6 + (encoding.readUINT16(from + 4) & 0xFFF);
+            Encoding description = encoding.readSelector(from, length, cursor);
+            consumer.accept(description);
+            from += length;
+        }
+    }
 }
@@ -93,4 +93,19 @@ public class EITSectionDecoder extends ExtendedSectionDecoder
             from += length;
         }
     }
+
+    public void forEachEventDescription(Encoding cursor, Consumer<Encoding> consumer)
+    {
+        Objects.requireNonNull(cursor);
+        Objects.requireNonNull(consumer);
+        int from = 14;
+        int to = encoding.size() - MPEG2.CHECKSUM_LENGTH;
+        while (from < to)
+        {
+            int length = 12 + (encoding.readUINT16(from + 10) & 0xFFF);
+            Encoding description = encoding.readSelector(from, length, cursor);
+            consumer.accept(description);
+            from += length;
+        }
+    }
 }
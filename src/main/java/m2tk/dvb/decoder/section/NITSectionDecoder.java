@@ -52,6 +52,12 @@ public class NITSectionDecoder extends PSISectionDecoder
         return encoding.readSelector(10, len);
     }
 
+    public Encoding getDescriptorLoop(Encoding target)
+    {
+        int len = encoding.readUINT16(8) & 0xFFF;
+        return encoding.readSelector(10, len, target);
+    }
+
     public Encoding[] getTransportStreamDescriptionList()
     {
         ArrayList<Encoding> list = new ArrayList<>();
@@ -79,4 +85,19 @@ public class NITSectionDecoder extends PSISectionDecoder
             from += length;
         }
     }
+
+    public void forEachTransportStreamDescription(Encoding cursor, Consumer<Encoding> consumer)
+    {
+        Objects.requireNonNull(cursor);
+        Objects.requireNonNull(consumer);
+        int from = 10 + (encoding.readUINT16(8) & 0xFFF) + 2;
+        int to = encoding.size() - MPEG2.CHECKSUM_LENGTH;
+        while (from < to)
+        {
+            int length = 6 + (encoding.readUINT16(from + 4) & 0xFFF);
+            Encoding description = encoding.readSelector(from, length, cursor);
+            consumer.accept(description);
+            from += length;
+        }
+    }
 }
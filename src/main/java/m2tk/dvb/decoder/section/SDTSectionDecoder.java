@@ -78,4 +78,19 @@ public class SDTSectionDecoder extends PSISectionDecoder
             from += length;
         }
     }
+
+    public void forEachServiceDescription(Encoding cursor, Consumer<Encoding> consumer)
+    {
+        Objects.requireNonNull(cursor);
+        Objects.requireNonNull(consumer);
+        int from = 11;
+        int to = encoding.size() - MPEG2.CHECKSUM_LENGTH;
+        while (from < to)
+        {
+            int length = 5 + (encoding.readUINT16(from + 3) & 0xFFF);
+            Encoding description = encoding.readSelector(from, length, cursor);
+            consumer.accept(description);
+            from += length;
+        }
+    }
 }
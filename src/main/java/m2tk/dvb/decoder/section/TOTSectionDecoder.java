@@ -46,6 +46,12 @@ public class TOTSectionDecoder extends SectionDecoder
         return encoding.readSelector(10, len);
     }
 
+    public Encoding getDescriptorLoop(Encoding target)
+    {
+        int len = encoding.readUINT16(8) & 0xFFF;
+        return encoding.readSelector(10, len, target);
+    }
+
     public long getChecksum()
     {
         return encoding.readUINT32(encoding.size() - MPEG2.CHECKSUM_LENGTH);
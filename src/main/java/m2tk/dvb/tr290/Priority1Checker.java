@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.dvb.tr290;
+
+import m2tk.io.PacketConsumer;
+import m2tk.mpeg2.MPEG2;
+import m2tk.mpeg2.analyzer.ContinuityAnalyzer;
+import m2tk.mpeg2.demux.PIDDemultiplexer;
+import m2tk.mpeg2.demux.SectionAssembler;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * TR 101 290 第一优先级检查：TS_sync_loss、Sync_byte_error、PAT_error、Continuity_count_error、PMT_error、PID_error。<p>
+ * 单遍处理：每个包只读取一次包头，各PID的状态（连续计数器、最近出现时间等）保存在以PID为下标的基本类型数组中，
+ * 稳定运行后不再分配对象（只在PAT/PMT版本变化时重建节目信息）。错误通过 {@link TR290Listener} 报告，
+ * 同时按指标累计次数。
+ * <p>
+ * 超时类指标（PAT/PMT 0.5s、PID_error）在表或包到达时检查，另外每隔 {@link #SCAN_INTERVAL_NANOS} 扫描一遍被监视的PID，
+ * 以便发现完全消失的PID；每次缺失只报告一次，PID重新出现后再次开始计时。
+ * 时间戳由调用者提供（纳秒），分析文件时可以用包序号按码率折算；{@link #accept(byte[], int)} 使用 {@link System#nanoTime()}。
+ * <p>
+ * 判定细则：
+ * <ul>
+ *     <li>同步：连续5个正确的同步字节进入同步状态，同步状态下连续2个错误的同步字节判定为 TS_sync_loss；
+ *     Sync_byte_error 只在同步状态下报告，同步字节错误的包不再做其他检查。</li>
+ *     <li>PAT_error：PID 0 上超过0.5s没有 table_id 为0x00的段；PID 0 上出现 table_id 不为0x00的段；PID 0 的包被加扰。</li>
+ *     <li>Continuity_count_error：由 {@link ContinuityAnalyzer} 判定，允许一次（除PCR外内容一致的）重复包；
+ *     空包、带传输错误的包以及 discontinuity_indicator 置位的包不参与判断。</li>
+ *     <li>PMT_error：PAT引用的PMT PID上超过0.5s没有 table_id 为0x02的段；PMT PID 的包被加扰。</li>
+ *     <li>PID_error：PMT引用的基本流PID在指定时间（默认5s，TR 101 290 交由用户指定）内没有出现。</li>
+ * </ul>
+ * 检查器不是线程安全的。
+ */
+public final class Priority1Checker implements PacketConsumer
+{
+    public static final long SECTION_TIMEOUT_NANOS = 500_000_000L;
+    public static final long DEFAULT_PID_TIMEOUT_NANOS = 5_000_000_000L;
+    public static final long SCAN_INTERVAL_NANOS = 20_000_000L;
+
+    private static final int PID_COUNT = MPEG2.MAX_PID + 1;
+    private static final int SYNC_ACQUIRE_COUNT = 5;
+    private static final int SYNC_LOSS_COUNT = 2;
+    private static final int REPORTED_SECTION = 0x01;
+    private static final int REPORTED_PACKET = 0x02;
+
+    private final TR290Listener listener;
+    private final ProgramMap programMap;
+    private final SectionAssembler assembler;
+    private final ContinuityAnalyzer continuityAnalyzer;
+
+    private final long[] lastSectionTimes = new long[PID_COUNT];
+    private final long[] lastPacketTimes = new long[PID_COUNT];
+    private final byte[] reported = new byte[PID_COUNT];
+    private final byte[] monitoredRoles = new byte[PID_COUNT];
+    private final int[] monitoredPids = new int[PID_COUNT];
+    private final long[] errorCounts = new long[TR290Error.CODE_LIMIT];
+    private int monitoredCount;
+    private int monitoredRevision;
+
+    private long pidTimeout = DEFAULT_PID_TIMEOUT_NANOS;
+    private boolean started;
+    private boolean synced;
+    private int goodSyncCount;
+    private int badSyncCount;
+    private long packetCount;
+    private long nextScan;
+
+    // 当前包的序号与时间戳，供段回调使用
+    private long packetIndex;
+    private long now;
+
+    public Priority1Checker(TR290Listener listener)
+    {
+        this(listener, new ProgramMap());
+    }
+
+    /**
+     * @param listener   错误监听器
+     * @param programMap 节目信息（可以与其他优先级的检查共享，由本检查器负责更新）
+     */
+    public Priority1Checker(TR290Listener listener, ProgramMap programMap)
+    {
+        this.listener = Objects.requireNonNull(listener);
+        this.programMap = Objects.requireNonNull(programMap);
+        this.assembler = new SectionAssembler(this::onSection);
+        this.continuityAnalyzer = new ContinuityAnalyzer();
+        reset();
+    }
+
+    public void reset()
+    {
+        continuityAnalyzer.reset();
+        Arrays.fill(lastSectionTimes, 0);
+        Arrays.fill(lastPacketTimes, 0);
+        Arrays.fill(reported, (byte) 0);
+        Arrays.fill(monitoredRoles, (byte) 0);
+        Arrays.fill(errorCounts, 0);
+        for (int pid = 0; pid < PID_COUNT; pid++)
+            assembler.reset(pid);
+        programMap.reset();
+        monitoredCount = 0;
+        monitoredRevision = programMap.getRevision() - 1;
+        started = false;
+        synced = false;
+        goodSyncCount = 0;
+        badSyncCount = 0;
+        packetCount = 0;
+    }
+
+    public ProgramMap getProgramMap()
+    {
+        return programMap;
+    }
+
+    public ContinuityAnalyzer getContinuityAnalyzer()
+    {
+        return continuityAnalyzer;
+    }
+
+    /**
+     * 设置 PID_error 的判定时间。
+     *
+     * @param nanos 基本流PID允许的最长缺失时间（纳秒）
+     */
+    public void setPIDTimeout(long nanos)
+    {
+        if (nanos <= 0)
+            throw new IllegalArgumentException("invalid timeout: " + nanos);
+        pidTimeout = nanos;
+    }
+
+    public long getPacketCount()
+    {
+        return packetCount;
+    }
+
+    public boolean isSynchronized()
+    {
+        return synced;
+    }
+
+    /**
+     * @param code 指标代码
+     * @return 该指标累计报告的次数
+     */
+    public long getErrorCount(int code)
+    {
+        return errorCounts[code];
+    }
+
+    @Override
+    public void accept(byte[] buffer, int offset)
+    {
+        check(buffer, offset, System.nanoTime());
+    }
+
+    /**
+     * 检查一个传输包。
+     *
+     * @param buffer    缓冲区
+     * @param offset    包起始位置
+     * @param timestamp 包的到达时间（纳秒，单调递增）
+     */
+    public void check(byte[] buffer, int offset, long timestamp)
+    {
+        packetIndex = packetCount++;
+        now = timestamp;
+        if (!started)
+        {
+            started = true;
+            nextScan = timestamp;
+            lastSectionTimes[0] = timestamp;
+        }
+
+        // 先于本包的段处理重建，新引用的PMT PID从现在开始计时，不会与旧的时间比较
+        if (monitoredRevision != programMap.getRevision())
+            rebuild();
+        if (timestamp >= nextScan)
+            scan();
+
+        if ((buffer[offset] & 0xFF) != MPEG2.TS_SYNC_BYTE)
+        {
+            goodSyncCount = 0;
+            badSyncCount++;
+            if (synced)
+            {
+                report(TR290Error.SYNC_BYTE_ERROR, MPEG2.INVALID_PID);
+                if (badSyncCount >= SYNC_LOSS_COUNT)
+                {
+                    synced = false;
+                    report(TR290Error.TS_SYNC_LOSS, MPEG2.INVALID_PID);
+                }
+            }
+            return;
+        }
+        badSyncCount = 0;
+        if (!synced && ++goodSyncCount >= SYNC_ACQUIRE_COUNT)
+            synced = true;
+
+        int b1 = buffer[offset + 1] & 0xFF;
+        int b3 = buffer[offset + 3] & 0xFF;
+        int pid = ((b1 << 8) | (buffer[offset + 2] & 0xFF)) & MPEG2.PID_MASK;
+        int afc = (b3 >> 4) & 0b11;
+
+        lastPacketTimes[pid] = timestamp;
+        reported[pid] &= ~REPORTED_PACKET;
+
+        int status = 0;
+        if ((b1 & 0x80) != 0)
+            status |= PIDDemultiplexer.STATUS_TRANSPORT_ERROR;
+        if ((b1 & 0x40) != 0)
+            status |= PIDDemultiplexer.STATUS_PAYLOAD_UNIT_START;
+        if ((b3 & 0xC0) != 0)
+            status |= PIDDemultiplexer.STATUS_SCRAMBLED;
+
+        int payloadStart = -1;
+        if (afc == 0b01)
+        {
+            payloadStart = MPEG2.TS_PACKET_HEADER_SIZE;
+        } else if ((afc & 0b10) != 0)
+        {
+            int length = buffer[offset + 4] & 0xFF;
+            if (length > 0 && (buffer[offset + 5] & 0x80) != 0)
+                status |= PIDDemultiplexer.STATUS_DISCONTINUITY_INDICATED;
+            if (afc == 0b11 && length <= 182)
+                payloadStart = MPEG2.TS_PACKET_HEADER_SIZE + 1 + length;
+        }
+
+        int continuity = continuityAnalyzer.analyze(buffer, offset);
+        if ((continuity & ContinuityAnalyzer.RESULT_CC_ERROR) != 0)
+        {
+            status |= PIDDemultiplexer.STATUS_CC_ERROR;
+            report(TR290Error.CONTINUITY_COUNT_ERROR, pid);
+        } else if ((continuity & ContinuityAnalyzer.RESULT_DUPLICATE) != 0)
+        {
+            status |= PIDDemultiplexer.STATUS_DUPLICATE;
+        }
+
+        if (pid == 0 || programMap.isPMTPID(pid))
+        {
+            if ((status & PIDDemultiplexer.STATUS_SCRAMBLED) != 0)
+                report((pid == 0) ? TR290Error.PAT_ERROR : TR290Error.PMT_ERROR, pid);
+            assembler.handle(buffer, offset, pid, payloadStart, status);
+        }
+    }
+
+    private void onSection(int pid, byte[] section, int length, long checksum)
+    {
+        int tableId = section[0] & 0xFF;
+        if (pid == 0)
+        {
+            if (tableId != 0x00)
+            {
+                report(TR290Error.PAT_ERROR, pid);
+                return;
+            }
+            sectionArrived(pid, TR290Error.PAT_ERROR);
+        } else
+        {
+            if (tableId != 0x02)
+                return;
+            sectionArrived(pid, TR290Error.PMT_ERROR);
+        }
+
+        if (checksum == 0)
+            programMap.update(pid, section, length);
+    }
+
+    private void sectionArrived(int pid, int code)
+    {
+        if ((reported[pid] & REPORTED_SECTION) == 0 && now - lastSectionTimes[pid] > SECTION_TIMEOUT_NANOS)
+            report(code, pid);
+        lastSectionTimes[pid] = now;
+        reported[pid] &= ~REPORTED_SECTION;
+    }
+
+    private void scan()
+    {
+        nextScan = now + SCAN_INTERVAL_NANOS;
+        for (int i = 0; i < monitoredCount; i++)
+        {
+            int pid = monitoredPids[i];
+            int roles = monitoredRoles[pid];
+            int flags = reported[pid];
+            if ((pid == 0 || (roles & ProgramMap.ROLE_PMT) != 0) &&
+                (flags & REPORTED_SECTION) == 0 &&
+                now - lastSectionTimes[pid] > SECTION_TIMEOUT_NANOS)
+            {
+                report((pid == 0) ? TR290Error.PAT_ERROR : TR290Error.PMT_ERROR, pid);
+                flags |= REPORTED_SECTION;
+            }
+            if ((roles & ProgramMap.ROLE_ELEMENTARY) != 0 &&
+                (flags & REPORTED_PACKET) == 0 &&
+                now - lastPacketTimes[pid] > pidTimeout)
+            {
+                report(TR290Error.PID_ERROR, pid);
+                flags |= REPORTED_PACKET;
+            }
+            reported[pid] = (byte) flags;
+        }
+    }
+
+    /**
+     * 节目信息变化后重建被监视的PID列表，新增的监视对象从现在开始计时。
+     */
+    private void rebuild()
+    {
+        monitoredRevision = programMap.getRevision();
+        monitoredCount = 0;
+        monitoredPids[monitoredCount++] = 0;
+        for (int pid = 1; pid < PID_COUNT; pid++)
+        {
+            int roles = programMap.getRoles(pid) & (ProgramMap.ROLE_PMT | ProgramMap.ROLE_ELEMENTARY);
+            int added = roles & ~monitoredRoles[pid];
+            if ((added & ProgramMap.ROLE_PMT) != 0)
+            {
+                lastSectionTimes[pid] = now;
+                reported[pid] &= ~REPORTED_SECTION;
+            }
+            if ((added & ProgramMap.ROLE_ELEMENTARY) != 0)
+            {
+                lastPacketTimes[pid] = now;
+                reported[pid] &= ~REPORTED_PACKET;
+            }
+            monitoredRoles[pid] = (byte) roles;
+            if (roles != 0)
+                monitoredPids[monitoredCount++] = pid;
+        }
+    }
+
+    private void report(int code, int pid)
+    {
+        errorCounts[code]++;
+        listener.errorDetected(code, pid, packetIndex, now);
+    }
+}
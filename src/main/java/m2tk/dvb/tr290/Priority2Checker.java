@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.dvb.tr290;
+
+import m2tk.io.PacketConsumer;
+import m2tk.mpeg2.MPEG2;
+import m2tk.mpeg2.analyzer.PCRAnalyzer;
+import m2tk.mpeg2.demux.PIDDemultiplexer;
+import m2tk.mpeg2.demux.PacketHandler;
+import m2tk.mpeg2.demux.SectionAssembler;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * TR 101 290 第二优先级检查：Transport_error、CRC_error、PCR_repetition_error、PCR_discontinuity_indicator_error、
+ * PCR_accuracy_error、PTS_error、CAT_error。<p>
+ * 包按PID分发由内部的 {@link PIDDemultiplexer} 完成（连续计数错误的段被丢弃，不会误报为CRC错误），
+ * PCR检查由 {@link PCRAnalyzer} 完成，PSI/SI段由 {@link SectionAssembler} 组装。
+ * 各PID的状态保存在以PID为下标的定长数组中，内存占用与码流中的PID数量无关；稳定运行后不再分配对象。
+ * <p>
+ * 判定细则：
+ * <ul>
+ *     <li>Transport_error：transport_error_indicator 置位，每个包报告一次。</li>
+ *     <li>CRC_error：PAT、CAT、PMT、NIT、BAT、SDT、EIT、TOT 段的CRC_32错误。</li>
+ *     <li>PCR相关：门限见 {@link PCRAnalyzer}（40ms、100ms、±500ns）。PCR PID上的PCR完全消失时
+ *     （到达时间超过40ms未再收到PCR）由定期扫描报告 PCR_repetition_error，每次缺失只报告一次。</li>
+ *     <li>PTS_error：PMT引用的基本流PID上相邻两个PTS的间隔超过 {@link #DEFAULT_PTS_WINDOW_NANOS}（可设置），
+ *     只检查出现过PTS且未加扰的PID；PTS完全消失时由定期扫描发现，每次缺失只报告一次。
+ *     PID离开节目后再次被引用时重新开始计时。</li>
+ *     <li>CAT_error：出现加扰的包，但此前 {@link #DEFAULT_CAT_WINDOW_NANOS}（可设置，TR 101 290 未规定）内没有收到CAT，
+ *     检查开始后的第一个窗口从第一个包算起；
+ *     PID 1 上出现 table_id 不为0x01的段。</li>
+ * </ul>
+ * 节目信息（{@link ProgramMap}）可以与 {@link Priority1Checker} 共享，两者都会用收到的PAT/PMT更新它（同一版本只解析一次），
+ * 本检查器还会用CAT更新其中的EMM PID。
+ * 检查器不是线程安全的。
+ */
+public final class Priority2Checker implements PacketConsumer
+{
+    public static final long DEFAULT_PTS_WINDOW_NANOS = 700_000_000L;
+    public static final long DEFAULT_CAT_WINDOW_NANOS = 10_000_000_000L;
+    public static final long SCAN_INTERVAL_NANOS = 20_000_000L;
+
+    private static final int PID_COUNT = MPEG2.MAX_PID + 1;
+    private static final int[] SI_PIDS = {0x0000, 0x0001, 0x0010, 0x0011, 0x0012, 0x0014};
+    private static final long NEVER = Long.MIN_VALUE;
+    private static final long PCR_WINDOW_NANOS = PCRAnalyzer.REPETITION_LIMIT_TICKS * 1_000_000_000L / MPEG2.SYSTEM_CLOCK_FREQUENCY_HZ;
+
+    private final TR290Listener listener;
+    private final ProgramMap programMap;
+    private final PIDDemultiplexer demux;
+    private final SectionAssembler assembler;
+    private final PCRAnalyzer pcrAnalyzer;
+    private final PacketHandler handler;
+
+    private final long[] lastPtsTimes = new long[PID_COUNT];
+    private final boolean[] ptsReported = new boolean[PID_COUNT];
+    private final boolean[] elementary = new boolean[PID_COUNT]; // 上次注册时是否为基本流PID
+    private final int[] ptsPids = new int[PID_COUNT];
+    private final long[] lastPcrTimes = new long[PID_COUNT];
+    private final boolean[] pcrReported = new boolean[PID_COUNT];
+    private final boolean[] pcrCarrier = new boolean[PID_COUNT]; // 上次注册时是否为PCR PID
+    private final int[] pcrPids = new int[PID_COUNT];
+    private final long[] errorCounts = new long[TR290Error.CODE_LIMIT];
+    private int ptsCount;
+    private int pcrCount;
+    private int registeredRevision;
+
+    private long ptsWindow = DEFAULT_PTS_WINDOW_NANOS;
+    private long catWindow = DEFAULT_CAT_WINDOW_NANOS;
+    private long lastCATTime;
+    private boolean catReported;
+    private long packetCount;
+    private long nextScan;
+
+    // 当前包的序号与时间戳，供回调使用
+    private long packetIndex;
+    private long now;
+
+    public Priority2Checker(TR290Listener listener)
+    {
+        this(listener, new ProgramMap());
+    }
+
+    /**
+     * @param listener   错误监听器
+     * @param programMap 节目信息（可以与 {@link Priority1Checker} 共享）
+     */
+    public Priority2Checker(TR290Listener listener, ProgramMap programMap)
+    {
+        this.listener = Objects.requireNonNull(listener);
+        this.programMap = Objects.requireNonNull(programMap);
+        this.demux = new PIDDemultiplexer();
+        this.assembler = new SectionAssembler(this::onSection);
+        this.pcrAnalyzer = new PCRAnalyzer();
+        this.handler = this::onPacket;
+        reset();
+    }
+
+    public void reset()
+    {
+        demux.reset();
+        for (int pid = 0; pid < PID_COUNT; pid++)
+        {
+            demux.unregister(pid);
+            assembler.reset(pid);
+        }
+        pcrAnalyzer.reset();
+        Arrays.fill(lastPtsTimes, NEVER);
+        Arrays.fill(ptsReported, false);
+        Arrays.fill(elementary, false);
+        Arrays.fill(lastPcrTimes, NEVER);
+        Arrays.fill(pcrReported, false);
+        Arrays.fill(pcrCarrier, false);
+        Arrays.fill(errorCounts, 0);
+        ptsCount = 0;
+        pcrCount = 0;
+        registeredRevision = programMap.getRevision() - 1;
+        lastCATTime = NEVER;
+        catReported = false;
+        packetCount = 0;
+        nextScan = NEVER;
+    }
+
+    public ProgramMap getProgramMap()
+    {
+        return programMap;
+    }
+
+    public PCRAnalyzer getPCRAnalyzer()
+    {
+        return pcrAnalyzer;
+    }
+
+    /**
+     * @param nanos 相邻两个PTS允许的最长间隔（纳秒）
+     */
+    public void setPTSWindow(long nanos)
+    {
+        if (nanos <= 0)
+            throw new IllegalArgumentException("invalid window: " + nanos);
+        ptsWindow = nanos;
+    }
+
+    /**
+     * @param nanos 出现加扰包时，CAT应在此时间（纳秒）内出现过
+     */
+    public void setCATWindow(long nanos)
+    {
+        if (nanos <= 0)
+            throw new IllegalArgumentException("invalid window: " + nanos);
+        catWindow = nanos;
+    }
+
+    public long getPacketCount()
+    {
+        return packetCount;
+    }
+
+    public long getErrorCount(int code)
+    {
+        return errorCounts[code];
+    }
+
+    @Override
+    public void accept(byte[] buffer, int offset)
+    {
+        check(buffer, offset, System.nanoTime());
+    }
+
+    /**
+     * 检查一个传输包。
+     *
+     * @param buffer    缓冲区
+     * @param offset    包起始位置
+     * @param timestamp 包的到达时间（纳秒，单调递增）
+     */
+    public void check(byte[] buffer, int offset, long timestamp)
+    {
+        packetIndex = packetCount++;
+        now = timestamp;
+        if (packetIndex == 0)
+            lastCATTime = timestamp; // 开始检查前不可能收到过CAT
+        if (registeredRevision != programMap.getRevision())
+            register();
+        if (timestamp >= nextScan)
+            scan();
+
+        if ((buffer[offset] & 0xFF) != MPEG2.TS_SYNC_BYTE)
+            return; // 同步问题属于第一优先级
+
+        int b1 = buffer[offset + 1] & 0xFF;
+        int pid = ((b1 << 8) | (buffer[offset + 2] & 0xFF)) & MPEG2.PID_MASK;
+        if ((b1 & 0x80) != 0)
+            report(TR290Error.TRANSPORT_ERROR, pid);
+        else if ((buffer[offset + 3] & 0xC0) != 0 && pid != MPEG2.NULL_PACKET_PID)
+            checkCATPresence(pid);
+
+        int result = pcrAnalyzer.analyze(buffer, offset);
+        if (result != 0)
+        {
+            boolean gapReported = pcrArrived(pid); // 扫描已报告过的缺失不再按间隔重复报告
+            if ((result & PCRAnalyzer.RESULT_INTERVAL_EXCEEDED) != 0 && !gapReported)
+                report(TR290Error.PCR_REPETITION_ERROR, pid);
+            if ((result & PCRAnalyzer.RESULT_DISCONTINUITY) != 0)
+                report(TR290Error.PCR_DISCONTINUITY_INDICATOR_ERROR, pid);
+            if ((result & PCRAnalyzer.RESULT_ACCURACY_EXCEEDED) != 0)
+                report(TR290Error.PCR_ACCURACY_ERROR, pid);
+        }
+
+        demux.accept(buffer, offset);
+    }
+
+    private void onPacket(byte[] buffer, int offset, int pid, int payloadStart, int status)
+    {
+        if (programMap.isElementaryPID(pid))
+        {
+            if ((status & (PIDDemultiplexer.STATUS_PAYLOAD_UNIT_START | PIDDemultiplexer.STATUS_TRANSPORT_ERROR |
+                           PIDDemultiplexer.STATUS_SCRAMBLED)) == PIDDemultiplexer.STATUS_PAYLOAD_UNIT_START &&
+                payloadStart >= 0 && hasPTS(buffer, offset + payloadStart, offset + MPEG2.TS_PACKET_SIZE))
+                ptsArrived(pid);
+        } else
+        {
+            assembler.handle(buffer, offset, pid, payloadStart, status);
+        }
+    }
+
+    private void onSection(int pid, byte[] section, int length, long checksum)
+    {
+        int tableId = section[0] & 0xFF;
+        if (pid == 0x0001)
+        {
+            if (tableId != 0x01)
+            {
+                report(TR290Error.CAT_ERROR, pid);
+                return;
+            }
+            lastCATTime = now;
+            catReported = false;
+        }
+
+        if (checksum != 0 && isCRCChecked(tableId))
+        {
+            report(TR290Error.CRC_ERROR, pid);
+            return;
+        }
+        if (tableId <= 0x02)
+            programMap.update(pid, section, length);
+    }
+
+    private static boolean isCRCChecked(int tableId)
+    {
+        return tableId <= 0x02 ||                      // PAT、CAT、PMT
+               (tableId >= 0x40 && tableId <= 0x4A) ||  // NIT、SDT、BAT
+               (tableId >= 0x4E && tableId <= 0x6F) ||  // EIT
+               tableId == 0x73;                         // TOT
+    }
+
+    /**
+     * 判断PES包头中是否带有PTS（跳过没有可选包头的 stream_id）。
+     */
+    private static boolean hasPTS(byte[] buffer, int from, int to)
+    {
+        if (from + 8 > to ||
+            buffer[from] != 0 || buffer[from + 1] != 0 || buffer[from + 2] != 1)
+            return false;
+        switch (buffer[from + 3] & 0xFF)
+        {
+            case 0xBC: // program_stream_map
+            case 0xBE: // padding_stream
+            case 0xBF: // private_stream_2
+            case 0xF0: // ECM
+            case 0xF1: // EMM
+            case 0xF2: // DSMCC_stream
+            case 0xF8: // ITU-T Rec. H.222.1 type E
+            case 0xFF: // program_stream_directory
+                return false;
+            default:
+                return (buffer[from + 7] & 0x80) != 0;
+        }
+    }
+
+    private void ptsArrived(int pid)
+    {
+        long last = lastPtsTimes[pid];
+        if (last == NEVER)
+            ptsPids[ptsCount++] = pid;
+        else if (!ptsReported[pid] && now - last > ptsWindow)
+            report(TR290Error.PTS_ERROR, pid);
+        lastPtsTimes[pid] = now;
+        ptsReported[pid] = false;
+    }
+
+    /**
+     * @return 本次PCR之前的缺失是否已由扫描报告
+     */
+    private boolean pcrArrived(int pid)
+    {
+        boolean reported = pcrReported[pid];
+        if (pcrCarrier[pid] && lastPcrTimes[pid] == NEVER)
+            pcrPids[pcrCount++] = pid;
+        lastPcrTimes[pid] = now;
+        pcrReported[pid] = false;
+        return reported;
+    }
+
+    private void checkCATPresence(int pid)
+    {
+        if (!catReported && now - lastCATTime > catWindow)
+        {
+            report(TR290Error.CAT_ERROR, pid);
+            catReported = true;
+        }
+    }
+
+    private void scan()
+    {
+        nextScan = now + SCAN_INTERVAL_NANOS;
+        for (int i = 0; i < ptsCount; i++)
+        {
+            int pid = ptsPids[i];
+            if (!ptsReported[pid] && programMap.isElementaryPID(pid) && now - lastPtsTimes[pid] > ptsWindow)
+            {
+                report(TR290Error.PTS_ERROR, pid);
+                ptsReported[pid] = true;
+            }
+        }
+        for (int i = 0; i < pcrCount; i++)
+        {
+            int pid = pcrPids[i];
+            if (!pcrReported[pid] && now - lastPcrTimes[pid] > PCR_WINDOW_NANOS)
+            {
+                report(TR290Error.PCR_REPETITION_ERROR, pid);
+                pcrReported[pid] = true;
+            }
+        }
+    }
+
+    /**
+     * 按节目信息注册需要分发的PID：固定的PSI/SI PID、PMT PID与基本流PID。
+     * 同时重建PTS检查列表：不再是基本流的PID移出列表，新成为基本流的PID清除以前的PTS记录，等收到PTS后重新开始计时。
+     * PCR检查列表按PCR PID同样处理。
+     */
+    private void register()
+    {
+        registeredRevision = programMap.getRevision();
+        ptsCount = 0;
+        pcrCount = 0;
+        for (int pid = 0; pid < PID_COUNT; pid++)
+        {
+            int roles = programMap.getRoles(pid);
+            boolean isElementary = (roles & ProgramMap.ROLE_ELEMENTARY) != 0;
+            if (isElementary && !elementary[pid])
+            {
+                lastPtsTimes[pid] = NEVER;
+                ptsReported[pid] = false;
+            }
+            elementary[pid] = isElementary;
+            if (isElementary && lastPtsTimes[pid] != NEVER)
+                ptsPids[ptsCount++] = pid;
+
+            boolean isPCR = (roles & ProgramMap.ROLE_PCR) != 0;
+            if (isPCR && !pcrCarrier[pid])
+            {
+                lastPcrTimes[pid] = NEVER;
+                pcrReported[pid] = false;
+            }
+            pcrCarrier[pid] = isPCR;
+            if (isPCR && lastPcrTimes[pid] != NEVER)
+                pcrPids[pcrCount++] = pid;
+
+            boolean wanted = (roles & (ProgramMap.ROLE_PMT | ProgramMap.ROLE_ELEMENTARY)) != 0;
+            if (wanted != demux.isRegistered(pid))
+            {
+                if (wanted)
+                    demux.register(pid, handler);
+                else
+                    demux.unregister(pid);
+            }
+        }
+        for (int pid : SI_PIDS)
+        {
+            if (!demux.isRegistered(pid))
+                demux.register(pid, handler);
+        }
+    }
+
+    private void report(int code, int pid)
+    {
+        errorCounts[code]++;
+        listener.errorDetected(code, pid, packetIndex, now);
+    }
+}
@@ -0,0 +1,553 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.dvb.tr290;
+
+import m2tk.io.PacketConsumer;
+import m2tk.mpeg2.MPEG2;
+import m2tk.mpeg2.demux.PIDDemultiplexer;
+import m2tk.mpeg2.demux.SectionAssembler;
+import m2tk.util.LongLongHashMap;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * TR 101 290 第三优先级检查：NIT_error、SI_repetition_error、Unreferenced_PID、SDT_error、EIT_error、
+ * RST_error、TDT_error（需要缓冲区模型的3.3、3.9、3.10不在此列）。<p>
+ * SI段的重复间隔按分段跟踪：以 table_id、table_id_extension、（SDT/EIT的）transport_stream_id 与
+ * original_network_id 以及 section_number 组成64位键，经 {@link LongLongHashMap} 映射到槽位，
+ * 到达时间保存在以槽位为下标的 long 数组中。查找不创建对象，槽位数组按需倍增，
+ * 可以容纳上百个业务、数万个EIT分段。各表的最长间隔按 table_id 设置（见 {@link #setMaxInterval(int, long)}）。
+ * <p>
+ * 每个槽位同时记录分段最近一次携带的 version_number 与 last_section_number。子表的版本或 last_section_number
+ * 变化时，section_number 超出新的 last_section_number 的分段随即移除，不会因为子表缩短而误报；
+ * 长时间（{@link #SLOT_EXPIRY_NANOS} 与两倍最长间隔中的较大者）没有再出现的分段也会被移除，槽位数不会无限增长。
+ * <p>
+ * 判定细则：
+ * <ul>
+ *     <li>NIT_actual_error、SDT_actual_error、EIT_actual_error（EIT p/f actual）、TDT_error：
+ *     对应 table_id 的段超过最长间隔没有出现；同一分段两次出现的间隔小于最短间隔（默认25ms）；
+ *     对应PID上出现不允许的 table_id。RST_error 只检查后两项。</li>
+ *     <li>NIT_other_error、SDT_other_error、EIT_other_error（EIT p/f other）：同一分段的重复间隔超过最长间隔。</li>
+ *     <li>SI_repetition_error：其他SI表（BAT、EIT schedule、TOT，以及上述actual表的各个分段）的重复间隔超过最长间隔，
+ *     或其他表的同一分段两次出现的间隔小于最短间隔。</li>
+ *     <li>EIT_PF_error：EIT p/f 子表的 section 0 或 section 1 再次出现时，另一个段从未出现过。</li>
+ *     <li>Unreferenced_PID：0x0020以上（空包PID除外）的PID出现后0.5s内仍未被PAT、PMT或CAT引用；
+ *     用户声明的私有数据PID（{@link #setPrivatePID(int, boolean)}）不参与判断。</li>
+ * </ul>
+ * 超时类指标在段到达时检查，另外定期扫描以发现完全消失的表；每次缺失只报告一次。
+ * CRC错误的段不参与判断（由 {@link Priority2Checker} 报告）。节目信息可以与其他优先级的检查共享。
+ * 检查器不是线程安全的。
+ */
+public final class Priority3Checker implements PacketConsumer
+{
+    public static final long DEFAULT_MIN_INTERVAL_NANOS = 25_000_000L;
+    public static final long UNREFERENCED_TIMEOUT_NANOS = 500_000_000L;
+    public static final long SCAN_INTERVAL_NANOS = 20_000_000L;
+    public static final long SWEEP_INTERVAL_NANOS = 1_000_000_000L;
+    public static final long SLOT_EXPIRY_NANOS = 120_000_000_000L;
+
+    private static final int PID_COUNT = MPEG2.MAX_PID + 1;
+    private static final int TABLE_ID_COUNT = 256;
+    private static final int[] SI_PIDS = {0x0000, 0x0001, 0x0010, 0x0011, 0x0012, 0x0013, 0x0014};
+    private static final int[] MANDATORY_TABLE_IDS = {0x40, 0x42, 0x4E, 0x70};
+    private static final long NEVER = Long.MIN_VALUE;
+    private static final long NO_SLOT = -1;
+    private static final short NO_VERSION = -1;
+    private static final int INITIAL_SLOTS = 256;
+    private static final int REPORTED_INTERVAL = 0x01;
+    private static final int REPORTED_PF = 0x02;
+
+    // 各 table_id 对应的错误代码：最短间隔、最长间隔、表缺失
+    private static final int[] MIN_INTERVAL_CODES = new int[TABLE_ID_COUNT];
+    private static final int[] MAX_INTERVAL_CODES = new int[TABLE_ID_COUNT];
+    private static final int[] ABSENCE_CODES = new int[TABLE_ID_COUNT];
+
+    static
+    {
+        Arrays.fill(MIN_INTERVAL_CODES, TR290Error.SI_REPETITION_ERROR);
+        Arrays.fill(MAX_INTERVAL_CODES, TR290Error.SI_REPETITION_ERROR);
+        MIN_INTERVAL_CODES[0x40] = TR290Error.NIT_ACTUAL_ERROR;
+        MIN_INTERVAL_CODES[0x42] = TR290Error.SDT_ACTUAL_ERROR;
+        MIN_INTERVAL_CODES[0x4E] = TR290Error.EIT_ACTUAL_ERROR;
+        MIN_INTERVAL_CODES[0x70] = TR290Error.TDT_ERROR;
+        MIN_INTERVAL_CODES[0x71] = TR290Error.RST_ERROR;
+        MAX_INTERVAL_CODES[0x41] = TR290Error.NIT_OTHER_ERROR;
+        MAX_INTERVAL_CODES[0x46] = TR290Error.SDT_OTHER_ERROR;
+        MAX_INTERVAL_CODES[0x4F] = TR290Error.EIT_OTHER_ERROR;
+        ABSENCE_CODES[0x40] = TR290Error.NIT_ACTUAL_ERROR;
+        ABSENCE_CODES[0x42] = TR290Error.SDT_ACTUAL_ERROR;
+        ABSENCE_CODES[0x4E] = TR290Error.EIT_ACTUAL_ERROR;
+        ABSENCE_CODES[0x70] = TR290Error.TDT_ERROR;
+    }
+
+    private final TR290Listener listener;
+    private final ProgramMap programMap;
+    private final PIDDemultiplexer demux;
+    private final SectionAssembler assembler;
+
+    private final long[] maxIntervals = new long[TABLE_ID_COUNT];
+    private final long[] lastTableTimes = new long[TABLE_ID_COUNT];
+    private final boolean[] tableReported = new boolean[TABLE_ID_COUNT];
+    private final long[] unreferencedSince = new long[PID_COUNT];
+    private final boolean[] unreferencedReported = new boolean[PID_COUNT];
+    private final boolean[] privatePids = new boolean[PID_COUNT];
+    private final long[] errorCounts = new long[TR290Error.CODE_LIMIT];
+    private final LongLongHashMap slotIndex = new LongLongHashMap(INITIAL_SLOTS);
+    private long[] slotKeys = new long[INITIAL_SLOTS];
+    private long[] slotTimes = new long[INITIAL_SLOTS];
+    private byte[] slotFlags = new byte[INITIAL_SLOTS];
+    private short[] slotVersions = new short[INITIAL_SLOTS]; // version_number << 8 | last_section_number
+    private int slotCount;
+    private int registeredRevision;
+
+    private long minInterval = DEFAULT_MIN_INTERVAL_NANOS;
+    private long startTime;
+    private long packetCount;
+    private long nextScan;
+    private long nextSweep;
+
+    // 当前包的序号与时间戳，供回调使用
+    private long packetIndex;
+    private long now;
+
+    public Priority3Checker(TR290Listener listener)
+    {
+        this(listener, new ProgramMap());
+    }
+
+    /**
+     * @param listener   错误监听器
+     * @param programMap 节目信息（可以与 {@link Priority1Checker}、{@link Priority2Checker} 共享）
+     */
+    public Priority3Checker(TR290Listener listener, ProgramMap programMap)
+    {
+        this.listener = Objects.requireNonNull(listener);
+        this.programMap = Objects.requireNonNull(programMap);
+        this.demux = new PIDDemultiplexer();
+        this.assembler = new SectionAssembler(this::onSection);
+
+        // TR 101 211 给出的最长重复间隔
+        maxIntervals[0x40] = 10_000_000_000L;  // NIT actual
+        maxIntervals[0x41] = 10_000_000_000L;  // NIT other
+        maxIntervals[0x42] = 2_000_000_000L;   // SDT actual
+        maxIntervals[0x46] = 10_000_000_000L;  // SDT other
+        maxIntervals[0x4A] = 10_000_000_000L;  // BAT
+        maxIntervals[0x4E] = 2_000_000_000L;   // EIT p/f actual
+        maxIntervals[0x4F] = 10_000_000_000L;  // EIT p/f other
+        for (int tableId = 0x50; tableId <= 0x6F; tableId++)
+            maxIntervals[tableId] = 30_000_000_000L; // EIT schedule
+        maxIntervals[0x50] = 10_000_000_000L;  // EIT schedule actual，最近4天
+        maxIntervals[0x60] = 10_000_000_000L;  // EIT schedule other，最近4天
+        maxIntervals[0x70] = 30_000_000_000L;  // TDT
+        maxIntervals[0x73] = 30_000_000_000L;  // TOT
+        reset();
+    }
+
+    public void reset()
+    {
+        demux.reset();
+        for (int pid = 0; pid < PID_COUNT; pid++)
+        {
+            demux.unregister(pid);
+            assembler.reset(pid);
+        }
+        Arrays.fill(lastTableTimes, NEVER);
+        Arrays.fill(tableReported, false);
+        Arrays.fill(unreferencedSince, NEVER);
+        Arrays.fill(unreferencedReported, false);
+        Arrays.fill(errorCounts, 0);
+        slotIndex.clear();
+        slotCount = 0;
+        registeredRevision = programMap.getRevision() - 1;
+        startTime = NEVER;
+        packetCount = 0;
+        nextScan = NEVER;
+        nextSweep = NEVER;
+    }
+
+    public ProgramMap getProgramMap()
+    {
+        return programMap;
+    }
+
+    /**
+     * 设置某个 table_id 的段的最长重复间隔。
+     *
+     * @param tableId table_id
+     * @param nanos   最长间隔（纳秒），0表示不检查
+     */
+    public void setMaxInterval(int tableId, long nanos)
+    {
+        if (tableId < 0 || tableId >= TABLE_ID_COUNT || nanos < 0)
+            throw new IllegalArgumentException("invalid max interval: " + tableId + ", " + nanos);
+        maxIntervals[tableId] = nanos;
+    }
+
+    public long getMaxInterval(int tableId)
+    {
+        return maxIntervals[tableId];
+    }
+
+    /**
+     * @param nanos 同一分段两次出现的最短间隔（纳秒），0表示不检查
+     */
+    public void setMinInterval(long nanos)
+    {
+        if (nanos < 0)
+            throw new IllegalArgumentException("invalid min interval: " + nanos);
+        minInterval = nanos;
+    }
+
+    /**
+     * 声明用户定义的私有数据PID，这些PID不做 Unreferenced_PID 检查。
+     */
+    public void setPrivatePID(int pid, boolean isPrivate)
+    {
+        privatePids[pid] = isPrivate;
+    }
+
+    /**
+     * @return 当前跟踪的SI分段数
+     */
+    public int getTrackedSectionCount()
+    {
+        return slotCount;
+    }
+
+    public long getPacketCount()
+    {
+        return packetCount;
+    }
+
+    public long getErrorCount(int code)
+    {
+        return errorCounts[code];
+    }
+
+    @Override
+    public void accept(byte[] buffer, int offset)
+    {
+        check(buffer, offset, System.nanoTime());
+    }
+
+    /**
+     * 检查一个传输包。
+     *
+     * @param buffer    缓冲区
+     * @param offset    包起始位置
+     * @param timestamp 包的到达时间（纳秒，单调递增）
+     */
+    public void check(byte[] buffer, int offset, long timestamp)
+    {
+        packetIndex = packetCount++;
+        now = timestamp;
+        if (startTime == NEVER)
+        {
+            startTime = timestamp;
+            nextSweep = timestamp + SWEEP_INTERVAL_NANOS;
+        }
+        if (registeredRevision != programMap.getRevision())
+            register();
+        if (timestamp >= nextScan)
+            scan();
+
+        if ((buffer[offset] & 0xFF) != MPEG2.TS_SYNC_BYTE)
+            return; // 同步问题属于第一优先级
+
+        int b1 = buffer[offset + 1] & 0xFF;
+        if ((b1 & 0x80) != 0)
+            return; // 带传输错误的包，PID不可信
+        int pid = ((b1 << 8) | (buffer[offset + 2] & 0xFF)) & MPEG2.PID_MASK;
+        if (pid > 0x001F && pid != MPEG2.NULL_PACKET_PID && !privatePids[pid])
+            checkReference(pid);
+
+        demux.accept(buffer, offset);
+    }
+
+    private void checkReference(int pid)
+    {
+        if (programMap.isReferenced(pid))
+        {
+            if (unreferencedSince[pid] != NEVER)
+            {
+                unreferencedSince[pid] = NEVER;
+                unreferencedReported[pid] = false;
+            }
+            return;
+        }
+
+        long since = unreferencedSince[pid];
+        if (since == NEVER)
+            unreferencedSince[pid] = now;
+        else if (!unreferencedReported[pid] && now - since > UNREFERENCED_TIMEOUT_NANOS)
+        {
+            report(TR290Error.UNREFERENCED_PID, pid);
+            unreferencedReported[pid] = true;
+        }
+    }
+
+    private void onSection(int pid, byte[] section, int length, long checksum)
+    {
+        int tableId = section[0] & 0xFF;
+        boolean syntax = (section[1] & 0x80) != 0;
+        if (checksum != 0 && (syntax || tableId == 0x73))
+            return; // CRC错误
+
+        if (pid <= 0x0001 || programMap.isPMTPID(pid))
+        {
+            if (tableId <= 0x02)
+                programMap.update(pid, section, length);
+            return;
+        }
+
+        int code = checkTableId(pid, tableId);
+        if (code != 0)
+        {
+            report(code, pid);
+            return;
+        }
+        if (tableId == 0x72)
+            return; // 填充表（ST）
+
+        lastTableTimes[tableId] = now;
+        tableReported[tableId] = false;
+        sectionArrived(pid, tableId, section, length, syntax);
+    }
+
+    /**
+     * @return table_id 不允许出现在该PID上时返回对应的错误代码，否则返回0
+     */
+    private static int checkTableId(int pid, int tableId)
+    {
+        switch (pid)
+        {
+            case 0x0010:
+                return (tableId == 0x40 || tableId == 0x41 || tableId == 0x72) ? 0 : TR290Error.NIT_ACTUAL_ERROR;
+            case 0x0011:
+                return (tableId == 0x42 || tableId == 0x46 || tableId == 0x4A || tableId == 0x72)
+                       ? 0 : TR290Error.SDT_ACTUAL_ERROR;
+            case 0x0012:
+                return ((tableId >= 0x4E && tableId <= 0x6F) || tableId == 0x72) ? 0 : TR290Error.EIT_ACTUAL_ERROR;
+            case 0x0013:
+                return (tableId == 0x71 || tableId == 0x72) ? 0 : TR290Error.RST_ERROR;
+            case 0x0014:
+                return (tableId == 0x70 || tableId == 0x72 || tableId == 0x73) ? 0 : TR290Error.TDT_ERROR;
+            default:
+                return 0;
+        }
+    }
+
+    private void sectionArrived(int pid, int tableId, byte[] section, int length, boolean syntax)
+    {
+        long key = sectionKey(tableId, section, length, syntax);
+        short version = (syntax && length >= MPEG2.MIN_PSI_SECTION_LENGTH)
+                        ? (short) ((((section[5] >> 1) & 0x1F) << 8) | (section[7] & 0xFF))
+                        : NO_VERSION;
+        int slot = (int) slotIndex.get(key, NO_SLOT);
+        if (slot < 0 || slotVersions[slot] != version)
+        {
+            if (version != NO_VERSION)
+                truncate(key, version & 0xFF);
+            slot = (int) slotIndex.get(key, NO_SLOT); // 本分段不会被移除，但可能被换到别的槽位
+        }
+        if (slot < 0)
+        {
+            slot = allocate(key);
+            slotTimes[slot] = now;
+            slotVersions[slot] = version;
+            return;
+        }
+        slotVersions[slot] = version;
+
+        long interval = now - slotTimes[slot];
+        int flags = slotFlags[slot];
+        long max = maxIntervals[tableId];
+        if (interval < minInterval)
+            report(MIN_INTERVAL_CODES[tableId], pid);
+        else if (max > 0 && interval > max && (flags & REPORTED_INTERVAL) == 0)
+            report(MAX_INTERVAL_CODES[tableId], pid);
+        flags &= ~REPORTED_INTERVAL;
+
+        if ((tableId == 0x4E || tableId == 0x4F) && (key & 0xFE) == 0 &&
+            (flags & REPORTED_PF) == 0 && !slotIndex.containsKey(key ^ 1))
+        {
+            report(TR290Error.EIT_PF_ERROR, pid);
+            flags |= REPORTED_PF;
+        }
+        slotTimes[slot] = now;
+        slotFlags[slot] = (byte) flags;
+    }
+
+    /**
+     * 分段的键：table_id(8) | table_id_extension(16) | transport_stream_id(16) | original_network_id(16) | section_number(8)。
+     * 短段（TDT、RST）只有 table_id。
+     */
+    private static long sectionKey(int tableId, byte[] section, int length, boolean syntax)
+    {
+        long key = (long) tableId << 56;
+        if (!syntax || length < MPEG2.MIN_PSI_SECTION_LENGTH)
+            return key;
+
+        key |= (long) (((section[3] & 0xFF) << 8) | (section[4] & 0xFF)) << 40;
+        key |= section[6] & 0xFF;
+        if (tableId >= 0x4E && tableId <= 0x6F && length >= 18)
+        {
+            // EIT：transport_stream_id、original_network_id
+            key |= (long) (((section[8] & 0xFF) << 8) | (section[9] & 0xFF)) << 24;
+            key |= (long) (((section[10] & 0xFF) << 8) | (section[11] & 0xFF)) << 8;
+        } else if ((tableId == 0x42 || tableId == 0x46) && length >= 15)
+        {
+            // SDT：original_network_id
+            key |= (long) (((section[8] & 0xFF) << 8) | (section[9] & 0xFF)) << 8;
+        }
+        return key;
+    }
+
+    private int allocate(long key)
+    {
+        if (slotCount == slotKeys.length)
+        {
+            int capacity = slotCount << 1;
+            slotKeys = Arrays.copyOf(slotKeys, capacity);
+            slotTimes = Arrays.copyOf(slotTimes, capacity);
+            slotFlags = Arrays.copyOf(slotFlags, capacity);
+            slotVersions = Arrays.copyOf(slotVersions, capacity);
+        }
+        int slot = slotCount++;
+        slotKeys[slot] = key;
+        slotFlags[slot] = 0;
+        slotIndex.put(key, slot, NO_SLOT);
+        return slot;
+    }
+
+    /**
+     * 移除同一子表中 section_number 大于 lastSection 的分段（子表发布了更短的新版本）。
+     */
+    private void truncate(long key, int lastSection)
+    {
+        long table = key & ~0xFFL;
+        for (int number = lastSection + 1; number <= 0xFF; number++)
+        {
+            int slot = (int) slotIndex.get(table | number, NO_SLOT);
+            if (slot >= 0)
+                release(slot);
+        }
+    }
+
+    /**
+     * 释放槽位，最后一个槽位移入空出的位置，保持槽位连续。
+     */
+    private void release(int slot)
+    {
+        slotIndex.remove(slotKeys[slot], NO_SLOT);
+        int last = --slotCount;
+        if (slot != last)
+        {
+            slotKeys[slot] = slotKeys[last];
+            slotTimes[slot] = slotTimes[last];
+            slotFlags[slot] = slotFlags[last];
+            slotVersions[slot] = slotVersions[last];
+            slotIndex.put(slotKeys[slot], slot, NO_SLOT);
+        }
+    }
+
+    private void scan()
+    {
+        nextScan = now + SCAN_INTERVAL_NANOS;
+        for (int tableId : MANDATORY_TABLE_IDS)
+        {
+            long max = maxIntervals[tableId];
+            long last = (lastTableTimes[tableId] == NEVER) ? startTime : lastTableTimes[tableId];
+            if (max > 0 && !tableReported[tableId] && now - last > max)
+            {
+                report(ABSENCE_CODES[tableId], siPID(tableId));
+                tableReported[tableId] = true;
+            }
+        }
+
+        if (now >= nextSweep)
+            sweep();
+    }
+
+    /**
+     * 扫描全部分段，发现不再出现的分段，并移除过期的分段（分段数可能很多，所以间隔较长）。
+     */
+    private void sweep()
+    {
+        nextSweep = now + SWEEP_INTERVAL_NANOS;
+        int slot = 0;
+        while (slot < slotCount)
+        {
+            int tableId = (int) (slotKeys[slot] >>> 56);
+            long max = maxIntervals[tableId];
+            long absence = now - slotTimes[slot];
+            if (absence > Math.max(SLOT_EXPIRY_NANOS, max << 1))
+            {
+                release(slot); // 换入的槽位在下一轮检查
+                continue;
+            }
+            if (max > 0 && (slotFlags[slot] & REPORTED_INTERVAL) == 0 && absence > max)
+            {
+                report(MAX_INTERVAL_CODES[tableId], siPID(tableId));
+                slotFlags[slot] |= REPORTED_INTERVAL;
+            }
+            slot++;
+        }
+    }
+
+    private static int siPID(int tableId)
+    {
+        if (tableId <= 0x41)
+            return 0x0010;
+        if (tableId <= 0x4A)
+            return 0x0011;
+        if (tableId <= 0x6F)
+            return 0x0012;
+        return (tableId == 0x71) ? 0x0013 : 0x0014;
+    }
+
+    /**
+     * 按节目信息注册需要分发的PID：固定的PSI/SI PID与PMT PID（用于更新节目信息）。
+     */
+    private void register()
+    {
+        registeredRevision = programMap.getRevision();
+        for (int pid = 0; pid < PID_COUNT; pid++)
+        {
+            boolean wanted = programMap.isPMTPID(pid);
+            if (wanted != demux.isRegistered(pid))
+            {
+                if (wanted)
+                    demux.register(pid, assembler);
+                else
+                    demux.unregister(pid);
+            }
+        }
+        for (int pid : SI_PIDS)
+        {
+            if (!demux.isRegistered(pid))
+                demux.register(pid, assembler);
+        }
+    }
+
+    private void report(int code, int pid)
+    {
+        errorCounts[code]++;
+        listener.errorDetected(code, pid, packetIndex, now);
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.dvb.tr290;
+
+import m2tk.mpeg2.MPEG2;
+
+import java.util.Arrays;
+
+/**
+ * 由PAT、PMT与CAT得出的各PID角色（PMT、基本流、PCR、NIT、CA），供各优先级的检查共享。<p>
+ * 段直接以字节数组形式输入（调用者应保证CRC正确），只在表版本变化时重新解析，
+ * 角色以基本类型数组保存，查询不创建对象。一个PID可以同时被多个节目引用，按引用计数维护。
+ * 节目按PAT中的条目（PMT PID 与 program_number）区分，多个节目可以共用同一个PMT PID，各自的PMT版本与基本流分别维护。
+ * 每次角色发生变化时修订号（{@link #getRevision()}）递增。
+ */
+public final class ProgramMap
+{
+    public static final int ROLE_PMT = 0x01;
+    public static final int ROLE_ELEMENTARY = 0x02;
+    public static final int ROLE_PCR = 0x04;
+    public static final int ROLE_NIT = 0x08;
+    /**
+     * ECM（PMT中CA_descriptor给出）或EMM（CAT中CA_descriptor给出）所在的PID。
+     */
+    public static final int ROLE_CA = 0x10;
+
+    private static final int CA_DESCRIPTOR_TAG = 0x09;
+
+    private static final int PID_COUNT = MPEG2.MAX_PID + 1;
+
+    private final byte[] roles = new byte[PID_COUNT];
+    private final short[] elementaryRefs = new short[PID_COUNT];
+    private final short[] pcrRefs = new short[PID_COUNT];
+    private final short[] caRefs = new short[PID_COUNT];
+    // 以下按节目（PAT条目）下标
+    private final int[] pmtPids = new int[PID_COUNT];
+    private final int[] programNumbers = new int[PID_COUNT];
+    private final int[] pmtVersions = new int[PID_COUNT];
+    private final int[] pcrPids = new int[PID_COUNT];
+    private final int[][] streams = new int[PID_COUNT][];
+    private final int[][] ecmPids = new int[PID_COUNT][];
+    private final int[] nextPrograms = new int[PID_COUNT]; // 同一PMT PID上的下一个节目，-1结束
+    private final int[] firstPrograms = new int[PID_COUNT]; // 按PMT PID下标，-1表示没有节目
+    private int programCount;
+    private int[] emmPids;
+    private int catVersion;
+    private int patVersion;
+    private int revision;
+
+    public ProgramMap()
+    {
+        reset();
+    }
+
+    public void reset()
+    {
+        Arrays.fill(roles, (byte) 0);
+        Arrays.fill(elementaryRefs, (short) 0);
+        Arrays.fill(pcrRefs, (short) 0);
+        Arrays.fill(caRefs, (short) 0);
+        Arrays.fill(streams, null);
+        Arrays.fill(ecmPids, null);
+        Arrays.fill(firstPrograms, -1);
+        programCount = 0;
+        emmPids = null;
+        catVersion = -1;
+        patVersion = -1;
+        revision++;
+    }
+
+    /**
+     * @return 角色的修订号，角色每变化一次递增一次
+     */
+    public int getRevision()
+    {
+        return revision;
+    }
+
+    /**
+     * @return PID的角色（ROLE_XXX 的组合）
+     */
+    public int getRoles(int pid)
+    {
+        return roles[pid];
+    }
+
+    public boolean isPMTPID(int pid)
+    {
+        return (roles[pid] & ROLE_PMT) != 0;
+    }
+
+    public boolean isElementaryPID(int pid)
+    {
+        return (roles[pid] & ROLE_ELEMENTARY) != 0;
+    }
+
+    public boolean isPCRPID(int pid)
+    {
+        return (roles[pid] & ROLE_PCR) != 0;
+    }
+
+    public boolean isCAPID(int pid)
+    {
+        return (roles[pid] & ROLE_CA) != 0;
+    }
+
+    /**
+     * @return PID是否被PAT、PMT或CAT引用
+     */
+    public boolean isReferenced(int pid)
+    {
+        return roles[pid] != 0;
+    }
+
+    /**
+     * 输入PID上收到的段（PAT、CAT或PMT，其他段被忽略）。
+     *
+     * @param pid     PID
+     * @param section 段数据（从下标0开始）
+     * @param length  段长度
+     * @return 角色是否发生了变化
+     */
+    public boolean update(int pid, byte[] section, int length)
+    {
+        if (length < MPEG2.MIN_PSI_SECTION_LENGTH || (section[5] & 0x01) == 0)
+            return false; // 太短或 current_next_indicator = 0
+        int tableId = section[0] & 0xFF;
+        if (pid == 0 && tableId == 0x00)
+            return updatePAT(section, length);
+        if (pid == 1 && tableId == 0x01)
+            return updateCAT(section, length);
+        if (tableId == 0x02 && (roles[pid] & ROLE_PMT) != 0)
+            return updatePMT(pid, section, length);
+        return false;
+    }
+
+    private boolean updatePAT(byte[] section, int length)
+    {
+        int version = (section[5] >> 1) & 0x1F;
+        boolean changed = false;
+        if (version != patVersion)
+        {
+            // 新版本PAT：撤销旧的节目，由本版本的各个段重新建立
+            for (int i = 0; i < programCount; i++)
+                dropProgram(i);
+            for (int pid = 0; pid < PID_COUNT; pid++)
+                roles[pid] &= ~ROLE_NIT;
+            programCount = 0;
+            patVersion = version;
+            changed = true;
+        }
+
+        int end = length - MPEG2.CHECKSUM_LENGTH;
+        for (int i = 8; i + 4 <= end; i += 4)
+        {
+            int programNumber = ((section[i] & 0xFF) << 8) | (section[i + 1] & 0xFF);
+            int pid = ((section[i + 2] & 0xFF) << 8 | (section[i + 3] & 0xFF)) & MPEG2.PID_MASK;
+            if (programNumber == MPEG2.RESERVED_PROGRAM_NUMBER)
+            {
+                if ((roles[pid] & ROLE_NIT) == 0)
+                {
+                    roles[pid] |= ROLE_NIT;
+                    changed = true;
+                }
+            } else if (findProgram(pid, programNumber) < 0 && programCount < PID_COUNT)
+            {
+                int program = programCount++;
+                pmtPids[program] = pid;
+                programNumbers[program] = programNumber;
+                pmtVersions[program] = -1;
+                nextPrograms[program] = firstPrograms[pid];
+                firstPrograms[pid] = program;
+                roles[pid] |= ROLE_PMT;
+                changed = true;
+            }
+        }
+
+        if (changed)
+            revision++;
+        return changed;
+    }
+
+    private int findProgram(int pmtPid, int programNumber)
+    {
+        for (int i = firstPrograms[pmtPid]; i >= 0; i = nextPrograms[i])
+        {
+            if (programNumbers[i] == programNumber)
+                return i;
+        }
+        return -1;
+    }
+
+    private boolean updatePMT(int pid, byte[] section, int length)
+    {
+        int program = findProgram(pid, ((section[3] & 0xFF) << 8) | (section[4] & 0xFF));
+        int version = (section[5] >> 1) & 0x1F;
+        if (program < 0 || version == pmtVersions[program] || length < 16)
+            return false; // PAT中没有该节目，或版本未变
+
+        int end = length - MPEG2.CHECKSUM_LENGTH;
+        int from = 12 + (((section[10] & 0x0F) << 8) | (section[11] & 0xFF));
+        int count = 0;
+        for (int i = from; i + 5 <= end; i += 5 + (((section[i + 3] & 0x0F) << 8) | (section[i + 4] & 0xFF)))
+            count++;
+        int[] list = new int[count];
+        count = 0;
+        for (int i = from; i + 5 <= end; i += 5 + (((section[i + 3] & 0x0F) << 8) | (section[i + 4] & 0xFF)))
+            list[count++] = ((section[i + 1] & 0xFF) << 8 | (section[i + 2] & 0xFF)) & MPEG2.PID_MASK;
+        int[] ecms = new int[collectPMTCAPids(section, from, end, null)];
+        collectPMTCAPids(section, from, end, ecms);
+
+        releaseStreams(program);
+        streams[program] = list;
+        for (int es : list)
+        {
+            elementaryRefs[es]++;
+            roles[es] |= ROLE_ELEMENTARY;
+        }
+        ecmPids[program] = ecms;
+        retainCAPids(ecms);
+        int pcrPid = ((section[8] & 0xFF) << 8 | (section[9] & 0xFF)) & MPEG2.PID_MASK;
+        pcrPids[program] = pcrPid;
+        if (pcrPid != MPEG2.NULL_PACKET_PID)
+        {
+            pcrRefs[pcrPid]++;
+            roles[pcrPid] |= ROLE_PCR;
+        }
+        pmtVersions[program] = version;
+        revision++;
+        return true;
+    }
+
+    private boolean updateCAT(byte[] section, int length)
+    {
+        int version = (section[5] >> 1) & 0x1F;
+        if (version == catVersion)
+            return false;
+
+        int end = length - MPEG2.CHECKSUM_LENGTH;
+        int[] list = new int[collectCAPids(section, 8, end, null, 0)];
+        collectCAPids(section, 8, end, list, 0);
+        releaseCAPids(emmPids);
+        emmPids = list;
+        retainCAPids(list);
+        catVersion = version;
+        revision++;
+        return true;
+    }
+
+    /**
+     * 统计（out 为 null 时）或填写PMT节目信息循环与各基本流信息循环中的 CA_PID。
+     *
+     * @param from 基本流循环的起始位置
+     */
+    private static int collectPMTCAPids(byte[] section, int from, int end, int[] out)
+    {
+        int n = collectCAPids(section, 12, Math.min(from, end), out, 0);
+        for (int i = from; i + 5 <= end; )
+        {
+            int next = i + 5 + (((section[i + 3] & 0x0F) << 8) | (section[i + 4] & 0xFF));
+            n = collectCAPids(section, i + 5, Math.min(next, end), out, n);
+            i = next;
+        }
+        return n;
+    }
+
+    private static int collectCAPids(byte[] section, int from, int to, int[] out, int n)
+    {
+        for (int i = from; i + 2 <= to; i += 2 + (section[i + 1] & 0xFF))
+        {
+            if ((section[i] & 0xFF) == CA_DESCRIPTOR_TAG && (section[i + 1] & 0xFF) >= 4 && i + 6 <= to)
+            {
+                if (out != null)
+                    out[n] = ((section[i + 4] & 0xFF) << 8 | (section[i + 5] & 0xFF)) & MPEG2.PID_MASK;
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private void retainCAPids(int[] list)
+    {
+        for (int pid : list)
+        {
+            caRefs[pid]++;
+            roles[pid] |= ROLE_CA;
+        }
+    }
+
+    private void releaseCAPids(int[] list)
+    {
+        if (list == null)
+            return;
+        for (int pid : list)
+        {
+            if (--caRefs[pid] == 0)
+                roles[pid] &= ~ROLE_CA;
+        }
+    }
+
+    private void dropProgram(int program)
+    {
+        releaseStreams(program);
+        int pmtPid = pmtPids[program];
+        roles[pmtPid] &= ~ROLE_PMT;
+        firstPrograms[pmtPid] = -1;
+    }
+
+    private void releaseStreams(int program)
+    {
+        int[] list = streams[program];
+        if (list == null)
+            return;
+        for (int es : list)
+        {
+            if (--elementaryRefs[es] == 0)
+                roles[es] &= ~ROLE_ELEMENTARY;
+        }
+        int pcrPid = pcrPids[program];
+        if (pcrPid != MPEG2.NULL_PACKET_PID && --pcrRefs[pcrPid] == 0)
+            roles[pcrPid] &= ~ROLE_PCR;
+        releaseCAPids(ecmPids[program]);
+        streams[program] = null;
+        ecmPids[program] = null;
+    }
+}
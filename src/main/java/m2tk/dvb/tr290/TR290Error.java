@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.dvb.tr290;
+
+/**
+ * ETSI TR 101 290 指标代码。<p>
+ * 代码的高8位为优先级，低8位为该优先级内的序号（按TR 101 290中的顺序编排，2.3a、2.3b、3.1a、3.1b 等子项各占一个序号）。
+ * 第三优先级中与缓冲区模型相关的指标（3.3、3.9、3.10）需要T-STD模型，不在此列出。
+ */
+public final class TR290Error
+{
+    public static final int TS_SYNC_LOSS = 0x0101;
+    public static final int SYNC_BYTE_ERROR = 0x0102;
+    public static final int PAT_ERROR = 0x0103;
+    public static final int CONTINUITY_COUNT_ERROR = 0x0104;
+    public static final int PMT_ERROR = 0x0105;
+    public static final int PID_ERROR = 0x0106;
+
+    public static final int TRANSPORT_ERROR = 0x0201;
+    public static final int CRC_ERROR = 0x0202;
+    public static final int PCR_REPETITION_ERROR = 0x0203; // 2.3a
+    public static final int PCR_DISCONTINUITY_INDICATOR_ERROR = 0x0204; // 2.3b
+    public static final int PCR_ACCURACY_ERROR = 0x0205;
+    public static final int PTS_ERROR = 0x0206;
+    public static final int CAT_ERROR = 0x0207;
+
+    public static final int NIT_ACTUAL_ERROR = 0x0301; // 3.1a
+    public static final int NIT_OTHER_ERROR = 0x0302; // 3.1b
+    public static final int SI_REPETITION_ERROR = 0x0303;
+    public static final int UNREFERENCED_PID = 0x0304;
+    public static final int SDT_ACTUAL_ERROR = 0x0305; // 3.5a
+    public static final int SDT_OTHER_ERROR = 0x0306; // 3.5b
+    public static final int EIT_ACTUAL_ERROR = 0x0307; // 3.6a
+    public static final int EIT_OTHER_ERROR = 0x0308; // 3.6b
+    public static final int EIT_PF_ERROR = 0x0309; // 3.6c
+    public static final int RST_ERROR = 0x030A;
+    public static final int TDT_ERROR = 0x030B;
+
+    /**
+     * 代码的最大取值（不含），可用作以代码为下标的数组长度。
+     */
+    static final int CODE_LIMIT = 0x0400;
+
+    private TR290Error()
+    {
+    }
+
+    public static int priority(int code)
+    {
+        return code >> 8;
+    }
+
+    public static String name(int code)
+    {
+        switch (code)
+        {
+            case TS_SYNC_LOSS:
+                return "TS_sync_loss";
+            case SYNC_BYTE_ERROR:
+                return "Sync_byte_error";
+            case PAT_ERROR:
+                return "PAT_error";
+            case CONTINUITY_COUNT_ERROR:
+                return "Continuity_count_error";
+            case PMT_ERROR:
+                return "PMT_error";
+            case PID_ERROR:
+                return "PID_error";
+            case TRANSPORT_ERROR:
+                return "Transport_error";
+            case CRC_ERROR:
+                return "CRC_error";
+            case PCR_REPETITION_ERROR:
+                return "PCR_repetition_error";
+            case PCR_DISCONTINUITY_INDICATOR_ERROR:
+                return "PCR_discontinuity_indicator_error";
+            case PCR_ACCURACY_ERROR:
+                return "PCR_accuracy_error";
+            case PTS_ERROR:
+                return "PTS_error";
+            case CAT_ERROR:
+                return "CAT_error";
+            case NIT_ACTUAL_ERROR:
+                return "NIT_actual_error";
+            case NIT_OTHER_ERROR:
+                return "NIT_other_error";
+            case SI_REPETITION_ERROR:
+                return "SI_repetition_error";
+            case UNREFERENCED_PID:
+                return "Unreferenced_PID";
+            case SDT_ACTUAL_ERROR:
+                return "SDT_actual_error";
+            case SDT_OTHER_ERROR:
+                return "SDT_other_error";
+            case EIT_ACTUAL_ERROR:
+                return "EIT_actual_error";
+            case EIT_OTHER_ERROR:
+                return "EIT_other_error";
+            case EIT_PF_ERROR:
+                return "EIT_PF_error";
+            case RST_ERROR:
+                return "RST_error";
+            case TDT_ERROR:
+                return "TDT_error";
+            default:
+                return "Unknown(" + Integer.toHexString(code) + ")";
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.dvb.tr290;
+
+@FunctionalInterface
+public interface TR290Listener
+{
+    /**
+     * Called when a TR 101 290 indicator fires.
+     *
+     * @param code        indicator code, see {@link TR290Error}
+     * @param pid         PID concerned, or {@code MPEG2.INVALID_PID} if the error is not tied to a PID
+     * @param packetIndex index of the packet that triggered the error (0-based)
+     * @param timestamp   timestamp of that packet, in nanoseconds
+     */
+    void errorDetected(int code, int pid, long packetIndex, long timestamp);
+}
@@ -19,6 +19,8 @@ package m2tk.encoding;
 /**
  * 除了表明身份（Decoder），其余什么都不能做的基础类。<p>
  * Decoder就像一个模具，将编码框起来，对于不合规的编码给出错误提示。
+ * <p>
+ * 解码器保存所关联的编码，不能在线程间共享；多线程解码时可使用 {@link DecoderRegistry#current()} 获取线程专属实例。
  */
 public abstract class Decoder
 {
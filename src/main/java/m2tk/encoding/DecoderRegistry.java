@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.encoding;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * 解码器注册表：按类型复用解码器实例。<p>
+ * 解码器在字段中保存所关联的编码，同一个实例不能在线程间共享。注册表为每个解码器类型只创建一个实例，
+ * 之后反复返回同一个实例，本身也不是线程安全的，应当由一个线程独占使用。
+ * {@link #current()} 返回当前线程专属的注册表，工作线程之间互不干扰，
+ * 同一线程上的多个任务也无需重复创建整套解码器。
+ * <pre>
+ *     DecoderRegistry decoders = DecoderRegistry.current();
+ *     SDTSectionDecoder sdt = decoders.get(SDTSectionDecoder.class);
+ *     ServiceDescriptorDecoder sd = decoders.get(ServiceDescriptorDecoder.class);
+ *     ...
+ *     decoders.detachAll(); // 任务结束，释放对编码（缓冲区）的引用
+ * </pre>
+ * 注意：同一线程上嵌套使用同类型解码器（如在遍历回调中再次解析同类结构）时，
+ * 获得的是同一个实例，内层关联会覆盖外层关联。
+ */
+public final class DecoderRegistry
+{
+    private static final MethodType DEFAULT_CONSTRUCTOR = MethodType.methodType(void.class);
+
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>()
+    {
+        @Override
+        protected MethodHandle computeValue(Class<?> type)
+        {
+            try
+            {
+                return MethodHandles.publicLookup()
+                                    .findConstructor(type, DEFAULT_CONSTRUCTOR)
+                                    .asType(MethodType.methodType(Decoder.class));
+            } catch (NoSuchMethodException | IllegalAccessException ex)
+            {
+                throw new IllegalArgumentException("No public default constructor: " + type.getName(), ex);
+            }
+        }
+    };
+
+    private static final ThreadLocal<DecoderRegistry> LOCAL = ThreadLocal.withInitial(DecoderRegistry::new);
+
+    private final IdentityHashMap<Class<?>, Decoder> decoders = new IdentityHashMap<>();
+
+    /**
+     * @return 当前线程专属的注册表
+     */
+    public static DecoderRegistry current()
+    {
+        return LOCAL.get();
+    }
+
+    /**
+     * 丢弃当前线程的注册表（及其中的全部解码器）。线程池中的线程退出前或不再解码时调用。
+     */
+    public static void release()
+    {
+        DecoderRegistry registry = LOCAL.get();
+        registry.detachAll();
+        LOCAL.remove();
+    }
+
+    /**
+     * 获取指定类型的解码器，首次获取时通过公开的无参构造方法创建。
+     *
+     * @param type 解码器类型
+     * @return 该类型的解码器（同一注册表上总是同一个实例）
+     * @throws IllegalArgumentException 解码器类型没有公开的无参构造方法
+     */
+    public <T extends Decoder> T get(Class<T> type)
+    {
+        Decoder decoder = decoders.get(type);
+        if (decoder == null)
+        {
+            decoder = newInstance(type);
+            decoders.put(type, decoder);
+        }
+        return type.cast(decoder);
+    }
+
+    /**
+     * 获取指定类型的解码器，首次获取时由factory创建。
+     *
+     * @param type    解码器类型
+     * @param factory 解码器工厂
+     * @return 该类型的解码器（同一注册表上总是同一个实例）
+     */
+    public <T extends Decoder> T get(Class<T> type, Supplier<? extends T> factory)
+    {
+        Decoder decoder = decoders.get(type);
+        if (decoder == null)
+        {
+            decoder = Objects.requireNonNull(factory.get());
+            decoders.put(type, type.cast(decoder));
+        }
+        return type.cast(decoder);
+    }
+
+    /**
+     * @return 已创建的解码器个数
+     */
+    public int size()
+    {
+        return decoders.size();
+    }
+
+    /**
+     * 解除全部解码器的关联，解码器实例保留以便复用。
+     */
+    public void detachAll()
+    {
+        for (Decoder decoder : decoders.values())
+            decoder.detach();
+    }
+
+    /**
+     * 丢弃全部解码器。
+     */
+    public void clear()
+    {
+        decoders.clear();
+    }
+
+    private static Decoder newInstance(Class<? extends Decoder> type)
+    {
+        try
+        {
+            return (Decoder) CONSTRUCTORS.get(type).invokeExact();
+        } catch (RuntimeException | Error ex)
+        {
+            throw ex;
+        } catch (Throwable t)
+        {
+            throw new IllegalStateException("Cannot create decoder: " + type.getName(), t);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import m2tk.util.Preconditions;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -34,14 +35,25 @@ import java.util.Arrays;
  * <li>轻量化。Encoding不存储数据，而是像“外壳”一样将数据包裹起来，并提供一些方便的访问接口。</li>
  * <li>不可变。Encoding是不可变对象，但提供数据固化接口（通过创建一个新的Encoding对象保存数据的副本）。</li>
  * </ol>
+ * 例外是通过 {@link #flyweight()} 创建的享元对象：它可以用 rebase 方法反复指向新的数据区域，
+ * 配合 {@link #readSelector(int, int, Encoding)} 等接口在遍历中复用同一个对象，避免为每个子结构分配新的Encoding。
+ * 享元对象在重新指向后，之前读到的内容即失效，不要在遍历之外保存它（需要保存时调用 {@link #copy()} 或 {@link #reference()}）。
  * 鉴于MPEG-2应用环境，Encoding采用BigEndian字节序。
+ * <p>
+ * Encoding既可以包装字节数组，也可以包装ByteBuffer（包括直接缓冲区与内存映射缓冲区），
+ * 后者直接在堆外内存上读取，不会将数据复制到堆中。
  */
 @SuppressWarnings("all")
 public final class Encoding
 {
+    private static final byte[] EMPTY = new byte[0];
+
     private byte[] buf;
+    private ByteBuffer mem; // 仅当buf为null时有效；原缓冲区的副本，limit恒为capacity
+    private ByteBuffer source; // mem对应的原缓冲区，rebase到同一缓冲区时复用mem
     private int off;
     private int len;
+    private boolean trusted; // 结构已经过一次性校验，readUINTxx 不再逐次检查边界
 
     private Encoding(byte[] buffer, int offset, int length)
     {
@@ -50,6 +62,13 @@ public final class Encoding
         len = length;
     }
 
+    private Encoding(ByteBuffer memory, int offset, int length)
+    {
+        mem = memory;
+        off = offset;
+        len = length;
+    }
+
     public static Encoding wrap(byte[] buffer)
     {
         return new Encoding(buffer, 0, buffer.length);
@@ -61,21 +80,177 @@ public final class Encoding
         return new Encoding(buffer, offset, length);
     }
 
+    /**
+     * 包装ByteBuffer中 position 到 limit 之间的数据。
+     * 之后对原缓冲区 position/limit 的修改不影响Encoding（数据内容的修改仍然可见）。
+     *
+     * @param buffer 目标缓冲区（堆内或堆外）
+     * @return Encoding对象
+     */
+    public static Encoding wrap(ByteBuffer buffer)
+    {
+        return wrap(buffer, buffer.position(), buffer.remaining());
+    }
+
+    /**
+     * 包装ByteBuffer中的指定区域（绝对位置，按 capacity 检查，与缓冲区当前的 position/limit 无关）。
+     * 可访问底层数组的堆内缓冲区按字节数组处理；其余缓冲区（直接缓冲区、只读缓冲区等）通过一个
+     * limit 为 capacity 的副本（{@link ByteBuffer#duplicate()}）读取，共享同一块内存，不复制数据。
+     *
+     * @param buffer 目标缓冲区（堆内或堆外）
+     * @param offset 区域起始位置
+     * @param length 区域长度
+     * @return Encoding对象
+     */
+    public static Encoding wrap(ByteBuffer buffer, int offset, int length)
+    {
+        Preconditions.checkFromIndexSize(offset, length, buffer.capacity());
+        if (buffer.hasArray())
+            return new Encoding(buffer.array(), buffer.arrayOffset() + offset, length);
+        Encoding encoding = new Encoding(fullView(buffer), offset, length);
+        encoding.source = buffer;
+        return encoding;
+    }
+
+    private static ByteBuffer fullView(ByteBuffer buffer)
+    {
+        ByteBuffer view = buffer.duplicate();
+        view.clear();
+        return view;
+    }
+
+    /**
+     * 创建一个可重新指向的享元对象，初始时为空（长度为0）。
+     *
+     * @return 享元对象
+     */
+    public static Encoding flyweight()
+    {
+        return new Encoding(EMPTY, 0, 0);
+    }
+
+    /**
+     * 将本对象重新指向另一个Encoding中的指定区域（parent可以是本对象自身）。
+     *
+     * @param parent   目标编码
+     * @param position 区域起始位置（相对于parent）
+     * @param length   区域长度
+     * @return 本对象
+     */
+    public Encoding rebase(Encoding parent, int position, int length)
+    {
+        Preconditions.checkFromIndexSize(position, length, parent.len);
+        byte[] b = parent.buf;
+        ByteBuffer m = parent.mem;
+        int o = parent.off + position;
+        buf = b;
+        mem = m;
+        source = parent.source;
+        off = o;
+        len = length;
+        trusted = parent.trusted;
+        return this;
+    }
+
+    /**
+     * 将本对象重新指向字节数组中的指定区域。
+     *
+     * @param buffer 字节数组
+     * @param offset 区域起始位置
+     * @param length 区域长度
+     * @return 本对象
+     */
+    public Encoding rebase(byte[] buffer, int offset, int length)
+    {
+        Preconditions.checkFromIndexSize(offset, length, buffer.length);
+        buf = buffer;
+        mem = null;
+        source = null;
+        off = offset;
+        len = length;
+        trusted = false;
+        return this;
+    }
+
+    /**
+     * 将本对象重新指向ByteBuffer中的指定区域（绝对位置），规则与 {@link #wrap(ByteBuffer, int, int)} 相同。
+     * 连续指向同一个缓冲区时复用已有的副本，不创建对象。
+     *
+     * @param buffer 目标缓冲区（堆内或堆外）
+     * @param offset 区域起始位置
+     * @param length 区域长度
+     * @return 本对象
+     */
+    public Encoding rebase(ByteBuffer buffer, int offset, int length)
+    {
+        Preconditions.checkFromIndexSize(offset, length, buffer.capacity());
+        if (buffer.hasArray())
+        {
+            buf = buffer.array();
+            mem = null;
+            source = null;
+            off = buffer.arrayOffset() + offset;
+        } else
+        {
+            if (buffer != source || mem == null)
+            {
+                mem = fullView(buffer);
+                source = buffer;
+            }
+            buf = null;
+            off = offset;
+        }
+        len = length;
+        trusted = false;
+        return this;
+    }
+
     public void dispose()
     {
         buf = null;
+        mem = null;
+        source = null;
         off = 0;
         len = 0;
+        trusted = false;
     }
 
     public Encoding reference()
     {
-        return new Encoding(buf, off, len);
+        return selector(off, len);
+    }
+
+    /**
+     * 将本对象标记为可信：其结构（各层长度字段）已经过完整校验，
+     * 之后的 readUINTxx/readBits 不再逐次检查边界，由此选出的子区域同样可信。<p>
+     * 只能由结构校验程序（{@link StructureValidator} 的子类）在校验通过后调用。
+     */
+    void markTrusted()
+    {
+        trusted = true;
+    }
+
+    /**
+     * 将本对象（享元对象）重新指向parent的全部区域，但不继承parent的可信标记，之后的读取逐次检查边界。
+     *
+     * @param parent 目标编码
+     * @return 本对象
+     */
+    public Encoding rebaseUntrusted(Encoding parent)
+    {
+        rebase(parent, 0, parent.len);
+        trusted = false;
+        return this;
+    }
+
+    public boolean isTrusted()
+    {
+        return trusted;
     }
 
     public Encoding copy()
     {
-        return wrap(Arrays.copyOfRange(buf, off, off + len));
+        return wrap(getBytes());
     }
 
     public int size()
@@ -83,57 +258,96 @@ public final class Encoding
         return len;
     }
 
+    /**
+     * @return 是否直接包装字节数组（否则为ByteBuffer）。
+     */
+    public boolean hasArray()
+    {
+        return buf != null;
+    }
+
     public byte[] getBytes()
     {
-        return Arrays.copyOfRange(buf, off, off + len);
+        if (buf != null)
+            return Arrays.copyOfRange(buf, off, off + len);
+
+        byte[] bytes = new byte[len];
+        transfer(0, bytes, 0, len);
+        return bytes;
     }
 
     public byte[] getRange(int from, int to)
     {
         Preconditions.checkFromToIndex(from, to, len);
-        return Arrays.copyOfRange(buf, off + from, off + to);
+        if (buf != null)
+            return Arrays.copyOfRange(buf, off + from, off + to);
+
+        byte[] bytes = new byte[to - from];
+        transfer(from, bytes, 0, to - from);
+        return bytes;
     }
 
     public int readUINT8(int position)
     {
-        Preconditions.checkFromIndexSize(position, 1, len);
-        return BigEndian.getUINT8(buf, off + position);
+        if (!trusted)
+            Preconditions.checkFromIndexSize(position, 1, len);
+        return (buf != null)
+               ? BigEndian.getUINT8(buf, off + position)
+               : BigEndian.getUINT8(mem, off + position);
     }
 
     public int readUINT16(int position)
     {
-        Preconditions.checkFromIndexSize(position, 2, len);
-        return BigEndian.getUINT16(buf, off + position);
+        if (!trusted)
+            Preconditions.checkFromIndexSize(position, 2, len);
+        return (buf != null)
+               ? BigEndian.getUINT16(buf, off + position)
+               : BigEndian.getUINT16(mem, off + position);
     }
 
     public int readUINT24(int position)
     {
-        Preconditions.checkFromIndexSize(position, 3, len);
-        return BigEndian.getUINT24(buf, off + position);
+        if (!trusted)
+            Preconditions.checkFromIndexSize(position, 3, len);
+        return (buf != null)
+               ? BigEndian.getUINT24(buf, off + position)
+               : BigEndian.getUINT24(mem, off + position);
     }
 
     public long readUINT32(int position)
     {
-        Preconditions.checkFromIndexSize(position, 4, len);
-        return BigEndian.getUINT32(buf, off + position);
+        if (!trusted)
+            Preconditions.checkFromIndexSize(position, 4, len);
+        return (buf != null)
+               ? BigEndian.getUINT32(buf, off + position)
+               : BigEndian.getUINT32(mem, off + position);
     }
 
     public long readUINT40(int position)
     {
-        Preconditions.checkFromIndexSize(position, 5, len);
-        return BigEndian.getUINT40(buf, off + position);
+        if (!trusted)
+            Preconditions.checkFromIndexSize(position, 5, len);
+        return (buf != null)
+               ? BigEndian.getUINT40(buf, off + position)
+               : BigEndian.getUINT40(mem, off + position);
     }
 
     public long readUINT48(int position)
     {
-        Preconditions.checkFromIndexSize(position, 6, len);
-        return BigEndian.getUINT48(buf, off + position);
+        if (!trusted)
+            Preconditions.checkFromIndexSize(position, 6, len);
+        return (buf != null)
+               ? BigEndian.getUINT48(buf, off + position)
+               : BigEndian.getUINT48(mem, off + position);
     }
 
     public long readUINT56(int position)
     {
-        Preconditions.checkFromIndexSize(position, 7, len);
-        return BigEndian.getUINT56(buf, off + position);
+        if (!trusted)
+            Preconditions.checkFromIndexSize(position, 7, len);
+        return (buf != null)
+               ? BigEndian.getUINT56(buf, off + position)
+               : BigEndian.getUINT56(mem, off + position);
     }
 
     /**
@@ -148,9 +362,12 @@ public final class Encoding
      */
     public long readBits(int position, long mask)
     {
-        Preconditions.checkIndex(position, len);
+        if (!trusted)
+            Preconditions.checkIndex(position, len);
         checkMask(mask);
-        return BigEndian.getBits(buf, off + position, mask);
+        return (buf != null)
+               ? BigEndian.getBits(buf, off + position, mask)
+               : BigEndian.getBits(mem, off + position, mask);
     }
 
     /**
@@ -167,13 +384,13 @@ public final class Encoding
         int n = (int) (length & 0xFFFFFFFEL);
         for (int i = 0; i < n; i += 2)
         {
-            int b = buf[off + position + i / 2] & 0xFF;
+            int b = byteAt(position + i / 2);
             nibbles[i] = b >>> 4;
             nibbles[i + 1] = b & 0xF;
         }
         if (length != n)
         {
-            int b = buf[off + position + n / 2] & 0xFF;
+            int b = byteAt(position + n / 2);
             nibbles[length - 1] = b >>> 4;
         }
         return nibbles;
@@ -191,20 +408,33 @@ public final class Encoding
         Preconditions.checkFromIndexSize(position, length, len);
         int[] octets = new int[length];
         for (int i = 0; i < length; i++)
-            octets[i] = buf[off + position + i] & 0xFF;
+            octets[i] = byteAt(position + i);
         return octets;
     }
 
     public Encoding readSelector(int position)
     {
         Preconditions.checkFromIndexSize(position, len - position, len);
-        return new Encoding(buf, off + position, len - position);
+        return selector(off + position, len - position);
     }
 
     public Encoding readSelector(int position, int length)
     {
         Preconditions.checkFromIndexSize(position, length, len);
-        return new Encoding(buf, off + position, length);
+        return selector(off + position, length);
+    }
+
+    /**
+     * 与 {@link #readSelector(int, int)} 相同，但不创建新对象，而是将target重新指向选定区域。
+     *
+     * @param position 区域起始位置
+     * @param length   区域长度
+     * @param target   接收结果的享元对象
+     * @return target
+     */
+    public Encoding readSelector(int position, int length, Encoding target)
+    {
+        return target.rebase(this, position, length);
     }
 
     public int copyRange(int from, int to, ByteArrayOutputStream stream)
@@ -212,7 +442,10 @@ public final class Encoding
         Preconditions.checkFromToIndex(from, to, len);
 
         int length = to - from;
-        stream.write(buf, off + from, to - from);
+        if (buf != null)
+            stream.write(buf, off + from, length);
+        else
+            stream.write(getRange(from, to), 0, length);
         return length;
     }
 
@@ -222,7 +455,10 @@ public final class Encoding
         Preconditions.checkFromToIndex(from, to, len);
 
         int length = to - from;
-        stream.write(buf, off + from, to - from);
+        if (buf != null)
+            stream.write(buf, off + from, length);
+        else
+            stream.write(getRange(from, to), 0, length);
         return length;
     }
 
@@ -231,7 +467,7 @@ public final class Encoding
         Preconditions.checkFromToIndex(from, to, len);
 
         int length = to - from;
-        System.arraycopy(buf, off + from, buffer, 0, length);
+        transfer(from, buffer, 0, length);
         return length;
     }
 
@@ -241,41 +477,53 @@ public final class Encoding
         Preconditions.checkFromIndexSize(offset, to - from, buffer.length);
 
         int length = to - from;
-        System.arraycopy(buf, off + from, buffer, offset, length);
+        transfer(from, buffer, offset, length);
         return length;
     }
 
     public long checksum()
     {
-        return CRC32.checksum(buf, off, len);
+        return (buf != null)
+               ? CRC32.checksum(buf, off, len)
+               : CRC32.checksum(mem, off, len);
     }
 
     public long checksum(int from, int to)
     {
         Preconditions.checkFromToIndex(from, to, len);
-        return CRC32.checksum(buf, off + from, to - from);
+        return (buf != null)
+               ? CRC32.checksum(buf, off + from, to - from)
+               : CRC32.checksum(mem, off + from, to - from);
     }
 
     public String toHexString()
     {
-        return Bytes.toHexString(buf, off, len);
+        return (buf != null)
+               ? Bytes.toHexString(buf, off, len)
+               : Bytes.toHexString(getBytes());
     }
 
     public String toHexString(int from, int to)
     {
         Preconditions.checkFromToIndex(from, to, len);
-        return Bytes.toHexString(buf, off + from, to - from);
+        return (buf != null)
+               ? Bytes.toHexString(buf, off + from, to - from)
+               : Bytes.toHexString(getRange(from, to));
     }
 
     public String toHexStringPrettyPrint()
     {
-        return Bytes.toHexStringPrettyPrint(buf, off, len);
+        return (buf != null)
+               ? Bytes.toHexStringPrettyPrint(buf, off, len)
+               : Bytes.toHexStringPrettyPrint(getBytes());
     }
 
     public String toHexStringPrettyPrint(int from, int to)
     {
         Preconditions.checkFromToIndex(from, to, len);
-        return Bytes.toHexStringPrettyPrint(buf, off + from, to - from);
+        return (buf != null)
+               ? Bytes.toHexStringPrettyPrint(buf, off + from, to - from)
+               : Bytes.toHexStringPrettyPrint(getRange(from, to));
     }
 
     @Override
@@ -297,7 +545,15 @@ public final class Encoding
         if (this.len != length)
             return false;
 
-        return Bytes.equals(this.buf, this.off, bytes, offset, length);
+        if (this.buf != null)
+            return Bytes.equals(this.buf, this.off, bytes, offset, length);
+
+        for (int i = 0; i < length; i++)
+        {
+            if (byteAt(i) != (bytes[offset + i] & 0xFF))
+                return false;
+        }
+        return true;
     }
 
     public boolean identicalTo(Encoding encoding)
@@ -311,7 +567,15 @@ public final class Encoding
         if (this.len != encoding.len)
             return false;
 
-        return Bytes.equals(this.buf, this.off, encoding.buf, encoding.off, this.len);
+        if (this.buf != null && encoding.buf != null)
+            return Bytes.equals(this.buf, this.off, encoding.buf, encoding.off, this.len);
+
+        for (int i = 0; i < len; i++)
+        {
+            if (byteAt(i) != encoding.byteAt(i))
+                return false;
+        }
+        return true;
     }
 
     public boolean identicalTo(byte[] bytes, byte[] masks)
@@ -324,10 +588,19 @@ public final class Encoding
         if (this.len != length)
             return false;
 
-        return Bytes.equalsWithMask(this.buf, this.off,
-                                    bytes, offset1,
-                                    masks, offset2,
-                                    length);
+        if (this.buf != null)
+            return Bytes.equalsWithMask(this.buf, this.off,
+                                        bytes, offset1,
+                                        masks, offset2,
+                                        length);
+
+        for (int i = 0; i < length; i++)
+        {
+            int mask = masks[offset2 + i] & 0xFF;
+            if ((byteAt(i) & mask) != (bytes[offset1 + i] & mask))
+                return false;
+        }
+        return true;
     }
 
     public boolean identicalTo(Encoding encoding, Encoding masks)
@@ -341,10 +614,48 @@ public final class Encoding
         if (this.len != encoding.len)
             return false;
 
-        return Bytes.equalsWithMask(this.buf, this.off,
-                                    encoding.buf, encoding.off,
-                                    masks.buf, masks.len,
-                                    this.len);
+        if (this.buf != null && encoding.buf != null && masks.buf != null)
+            return Bytes.equalsWithMask(this.buf, this.off,
+                                        encoding.buf, encoding.off,
+                                        masks.buf, masks.off,
+                                        this.len);
+
+        for (int i = 0; i < len; i++)
+        {
+            int mask = masks.byteAt(i);
+            if ((byteAt(i) & mask) != (encoding.byteAt(i) & mask))
+                return false;
+        }
+        return true;
+    }
+
+    private Encoding selector(int offset, int length)
+    {
+        Encoding selector = (buf != null)
+                            ? new Encoding(buf, offset, length)
+                            : new Encoding(mem, offset, length);
+        selector.trusted = trusted;
+        return selector;
+    }
+
+    private int byteAt(int position)
+    {
+        return (buf != null)
+               ? buf[off + position] & 0xFF
+               : mem.get(off + position) & 0xFF;
+    }
+
+    private void transfer(int from, byte[] dst, int offset, int length)
+    {
+        if (buf != null)
+        {
+            System.arraycopy(buf, off + from, dst, offset, length);
+            return;
+        }
+
+        // 逐字节绝对读取，避免修改共享缓冲区的position。
+        for (int i = 0; i < length; i++)
+            dst[offset + i] = mem.get(off + from + i);
     }
 
     private void checkMask(long mask)
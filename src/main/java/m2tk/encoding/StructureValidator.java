@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.encoding;
+
+/**
+ * 结构校验程序的基类。<p>
+ * 可信的 {@link Encoding} 在读取时不再逐次检查边界，因此只有结构校验程序可以授予可信标记：
+ * 子类在完成校验（确认各层长度字段都不越界）后调用 {@link #markTrusted(Encoding)}。
+ * 对未经校验的数据标记可信，越界读取将得到错误结果而不是异常。
+ */
+public abstract class StructureValidator
+{
+    protected StructureValidator()
+    {
+    }
+
+    /**
+     * 将通过校验的编码标记为可信。
+     *
+     * @param encoding 已通过结构校验的编码
+     */
+    protected static void markTrusted(Encoding encoding)
+    {
+        encoding.markTrusted();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.io;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * 内存映射缓冲区的辅助工具。<p>
+ * JDK没有提供公开的解除映射接口，这里借用 sun.misc.Unsafe.invokeCleaner 主动释放映射，
+ * 若运行环境不支持，则退化为等待GC回收。
+ */
+final class MappedBuffers
+{
+    private MappedBuffers() {}
+
+    private static final MethodHandle INVOKE_CLEANER = lookupCleaner();
+
+    static void unmap(MappedByteBuffer buffer)
+    {
+        if (buffer == null || INVOKE_CLEANER == null)
+            return;
+
+        try
+        {
+            INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+        } catch (Throwable ignored)
+        {
+            // 释放失败时交由GC处理
+        }
+    }
+
+    private static MethodHandle lookupCleaner()
+    {
+        try
+        {
+            Class<?> clazz = Class.forName("sun.misc.Unsafe");
+            Field field = clazz.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            MethodHandle handle = MethodHandles.lookup()
+                                               .findVirtual(clazz, "invokeCleaner",
+                                                            MethodType.methodType(void.class, ByteBuffer.class));
+            return handle.bindTo(unsafe);
+        } catch (Throwable ignored)
+        {
+            return null;
+        }
+    }
+}
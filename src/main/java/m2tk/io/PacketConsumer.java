@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.io;
+
+@FunctionalInterface
+public interface PacketConsumer
+{
+    /**
+     * Consumes a 188-byte transport packet in place.
+     * The buffer is only valid during the call.
+     *
+     * @param buffer buffer holding the packet
+     * @param offset position of the sync byte
+     */
+    void accept(byte[] buffer, int offset);
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.io;
+
+import m2tk.encoding.Encoding;
+import m2tk.mpeg2.MPEG2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 基于内存映射（FileChannel.map）的传输流文件读取器。<p>
+ * 文件按窗口分段映射，窗口大小总是包长的整数倍，因此传输包不会跨越窗口，
+ * 文件大小不受单个映射2GB的限制。每次调用 {@link #next()} 前进一个包，
+ * 通过 {@link #packet()} 获取可复用的包视图（直接指向映射区，不复制数据；每次前进都会重新指向），
+ * 或者通过 {@link #buffer()} 与 {@link #position()} 直接访问映射区内的原始数据。
+ * <p>
+ * 支持 188（标准TS）、192（M2TS，4字节时间戳前缀）与 204（含16字节RS校验）三种包长，
+ * 视图始终只包含188字节的TS包部分。
+ * <p>
+ * 视图的有效期：{@link #packet()} 返回的视图（以及由它选出的子区域、挂接在它上面的解码器）
+ * 只在下一次 {@link #next()}、{@link #seek(long)} 之后的 next() 或 {@link #close()} 之前有效。
+ * 前进后视图指向新的包；窗口切换并启用 {@link #setUnmapOnAdvance(boolean)} 时旧的映射区被释放，
+ * 关闭后视图被清空。需要在此之后继续使用包数据时，请先调用 {@link Encoding#copy()}。
+ */
+public final class TransportStreamFileSource implements Closeable
+{
+    public static final int DEFAULT_WINDOW_PACKETS = 1 << 20;
+
+    private final FileChannel channel;
+    private final int packetSize;
+    private final int prefixSize;
+    private final long packetCount;
+    private final long windowPackets;
+
+    private MappedByteBuffer window;
+    private CompletableFuture<Void> windowLoading;
+    private long windowFirst;        // 当前窗口内第一个包的序号
+    private long windowEnd;          // 当前窗口之后第一个包的序号
+    private MappedByteBuffer ahead;  // 预读的下一窗口
+    private long aheadFirst;
+    private CompletableFuture<Void> aheadLoading;
+
+    private Executor prefetchExecutor;
+    private boolean unmapOnAdvance;
+
+    private long index;
+    private int position;
+    private final Encoding view;
+
+    public TransportStreamFileSource(Path path) throws IOException
+    {
+        this(path, MPEG2.TS_PACKET_SIZE, DEFAULT_WINDOW_PACKETS);
+    }
+
+    public TransportStreamFileSource(Path path, int packetSize) throws IOException
+    {
+        this(path, packetSize, DEFAULT_WINDOW_PACKETS);
+    }
+
+    public TransportStreamFileSource(Path path, int packetSize, int windowPackets) throws IOException
+    {
+        if (packetSize != MPEG2.TS_PACKET_SIZE &&
+            packetSize != MPEG2.TS_PACKET_SIZE + 4 &&
+            packetSize != MPEG2.TS_PACKET_SIZE + MPEG2.RS_CODE_SIZE)
+            throw new IllegalArgumentException("unsupported packet size: " + packetSize);
+        if (windowPackets <= 0 || (long) windowPackets * packetSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("invalid window size: " + windowPackets);
+
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.packetSize = packetSize;
+        this.prefixSize = (packetSize == MPEG2.TS_PACKET_SIZE + 4) ? 4 : 0;
+        this.packetCount = channel.size() / packetSize;
+        this.windowPackets = windowPackets;
+        this.view = Encoding.flyweight();
+        this.index = -1;
+    }
+
+    /**
+     * 设置预读执行器。设置后，每进入一个新窗口，都会提前映射下一个窗口，并在执行器中加载其页面。
+     *
+     * @param executor 预读执行器，为null时关闭预读。
+     */
+    public void setPrefetchExecutor(Executor executor)
+    {
+        prefetchExecutor = executor;
+    }
+
+    /**
+     * 设置离开窗口时是否立即解除映射。<p>
+     * 注意：解除映射后，之前通过 {@link #buffer()} 取得的缓冲区将不能再访问，否则会导致JVM崩溃。
+     *
+     * @param unmap 是否立即解除映射
+     */
+    public void setUnmapOnAdvance(boolean unmap)
+    {
+        unmapOnAdvance = unmap;
+    }
+
+    public int getPacketSize()
+    {
+        return packetSize;
+    }
+
+    public long getPacketCount()
+    {
+        return packetCount;
+    }
+
+    /**
+     * 前进到下一个传输包。
+     *
+     * @return 存在下一个包时返回true，到达文件末尾时返回false。
+     */
+    public boolean next() throws IOException
+    {
+        long target = index + 1;
+        if (target >= packetCount)
+            return false;
+
+        if (window == null || target < windowFirst || target >= windowEnd)
+            switchWindow(target);
+
+        index = target;
+        position = (int) ((target - windowFirst) * packetSize) + prefixSize;
+        view.rebase(window, position, MPEG2.TS_PACKET_SIZE);
+        return true;
+    }
+
+    /**
+     * 定位到指定序号的包之前，下一次 {@link #next()} 将返回该包。
+     *
+     * @param packetIndex 包序号
+     */
+    public void seek(long packetIndex)
+    {
+        if (packetIndex < 0 || packetIndex > packetCount)
+            throw new IndexOutOfBoundsException(String.format("index: %d, limit: %d", packetIndex, packetCount));
+        index = packetIndex - 1;
+    }
+
+    /**
+     * @return 当前包的视图（188字节，直接指向映射区）。视图对象是复用的，只在下一次 {@link #next()} 或
+     * {@link #close()} 之前有效；需要保存时请调用 copy()。
+     */
+    public Encoding packet()
+    {
+        return view;
+    }
+
+    /**
+     * @return 当前窗口的映射缓冲区（只读）。仅在窗口切换前有效。
+     */
+    public ByteBuffer buffer()
+    {
+        return window;
+    }
+
+    /**
+     * @return 当前TS包在 {@link #buffer()} 中的起始位置（已跳过前缀）。
+     */
+    public int position()
+    {
+        return position;
+    }
+
+    public long packetIndex()
+    {
+        return index;
+    }
+
+    public long filePosition()
+    {
+        return index * packetSize;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        view.dispose(); // 映射区释放后不能再通过视图访问
+        release(window, windowLoading);
+        release(ahead, aheadLoading);
+        window = null;
+        windowLoading = null;
+        ahead = null;
+        aheadLoading = null;
+        channel.close();
+    }
+
+    private void switchWindow(long first) throws IOException
+    {
+        release(window, windowLoading);
+
+        if (ahead != null && aheadFirst == first)
+        {
+            window = ahead;
+            windowLoading = aheadLoading;
+        } else
+        {
+            release(ahead, aheadLoading);
+            window = map(first);
+            windowLoading = null;
+        }
+        ahead = null;
+        aheadLoading = null;
+        windowFirst = first;
+        windowEnd = Math.min(first + windowPackets, packetCount);
+
+        if (prefetchExecutor != null && windowEnd < packetCount)
+        {
+            ahead = map(windowEnd);
+            aheadFirst = windowEnd;
+            MappedByteBuffer target = ahead;
+            aheadLoading = CompletableFuture.runAsync(target::load, prefetchExecutor);
+        }
+    }
+
+    private MappedByteBuffer map(long first) throws IOException
+    {
+        long count = Math.min(windowPackets, packetCount - first);
+        return channel.map(FileChannel.MapMode.READ_ONLY, first * packetSize, count * packetSize);
+    }
+
+    private void release(MappedByteBuffer buffer, CompletableFuture<Void> loading)
+    {
+        // 预读尚未结束的映射不能释放，否则加载线程访问失效页面会导致JVM崩溃。
+        if (unmapOnAdvance && (loading == null || loading.isDone()))
+            MappedBuffers.unmap(buffer);
+    }
+}
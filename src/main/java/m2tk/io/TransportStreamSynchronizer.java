@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.io;
+
+import m2tk.mpeg2.MPEG2;
+import m2tk.util.Bytes;
+
+import java.util.Objects;
+
+/**
+ * 流式传输包同步器。<p>
+ * 从任意切分的原始字节流中搜索同步字节（0x47），自动识别 188/192/204 三种包长，
+ * 连续确认指定数量的同步字节后锁定，随后按包长切分并输出188字节的TS包。
+ * <ul>
+ * <li>完整落在输入块内的包直接以原数组和偏移量输出，不做复制；只有跨越输入块边界的包才会暂存。</li>
+ * <li>M2TS（192字节）包的4字节时间戳前缀与DVB-ASI（204字节）包的16字节RS校验被跳过，
+ * 需要时可以通过输出偏移量的前后位置访问。</li>
+ * <li>锁定后连续出现指定数量的同步字节错误即判定失锁，并从出错位置开始重新搜索。</li>
+ * </ul>
+ * 同步器不是线程安全的。
+ */
+public final class TransportStreamSynchronizer
+{
+    public static final int DEFAULT_CONFIRMATION_DEPTH = 5;
+    public static final int DEFAULT_LOSS_THRESHOLD = 2;
+
+    private static final int M2TS_PACKET_SIZE = MPEG2.TS_PACKET_SIZE + 4;
+    private static final int RS_PACKET_SIZE = MPEG2.TS_PACKET_SIZE + MPEG2.RS_CODE_SIZE;
+    private static final int[] CANDIDATE_SIZES = {MPEG2.TS_PACKET_SIZE, M2TS_PACKET_SIZE, RS_PACKET_SIZE};
+    private static final byte SYNC = (byte) MPEG2.TS_SYNC_BYTE;
+
+    private final PacketConsumer consumer;
+    private final int confirmationDepth;
+    private final int lossThreshold;
+
+    private final byte[] pending;
+    private int pendingLen;
+
+    private boolean locked;
+    private int packetSize;
+    private int prefixSize;
+    private int badSyncCount;
+
+    private long packetCount;
+    private long droppedPacketCount;
+    private long skippedByteCount;
+    private long syncLossCount;
+
+    public TransportStreamSynchronizer(PacketConsumer consumer)
+    {
+        this(consumer, DEFAULT_CONFIRMATION_DEPTH, DEFAULT_LOSS_THRESHOLD);
+    }
+
+    /**
+     * @param consumer          包接收者
+     * @param confirmationDepth 锁定前需要连续出现的同步字节个数（至少为2）
+     * @param lossThreshold     锁定后判定失锁所需的连续同步字节错误次数（至少为1）
+     */
+    public TransportStreamSynchronizer(PacketConsumer consumer, int confirmationDepth, int lossThreshold)
+    {
+        if (confirmationDepth < 2)
+            throw new IllegalArgumentException("invalid confirmation depth: " + confirmationDepth);
+        if (lossThreshold < 1)
+            throw new IllegalArgumentException("invalid loss threshold: " + lossThreshold);
+
+        this.consumer = Objects.requireNonNull(consumer);
+        this.confirmationDepth = confirmationDepth;
+        this.lossThreshold = lossThreshold;
+        this.pending = new byte[(confirmationDepth + 1) * RS_PACKET_SIZE];
+    }
+
+    public void reset()
+    {
+        pendingLen = 0;
+        locked = false;
+        packetSize = 0;
+        prefixSize = 0;
+        badSyncCount = 0;
+    }
+
+    public boolean isLocked()
+    {
+        return locked;
+    }
+
+    /**
+     * @return 当前锁定的包长（188/192/204），未锁定时为0。
+     */
+    public int getPacketSize()
+    {
+        return locked ? packetSize : 0;
+    }
+
+    public long getPacketCount()
+    {
+        return packetCount;
+    }
+
+    public long getDroppedPacketCount()
+    {
+        return droppedPacketCount;
+    }
+
+    public long getSkippedByteCount()
+    {
+        return skippedByteCount;
+    }
+
+    public long getSyncLossCount()
+    {
+        return syncLossCount;
+    }
+
+    /**
+     * 输入一段原始数据。数据可以任意切分，不要求与包边界对齐。
+     *
+     * @param data   数据缓冲区
+     * @param offset 数据起始位置
+     * @param length 数据长度
+     */
+    public void feed(byte[] data, int offset, int length)
+    {
+        int pos = offset;
+        int end = offset + length;
+        while (pos < end)
+        {
+            if (!locked)
+            {
+                pos = hunt(data, pos, end);
+                continue;
+            }
+
+            if (pendingLen > 0)
+            {
+                // 补齐上一输入块遗留的半个包
+                int n = Math.min(packetSize - pendingLen, end - pos);
+                System.arraycopy(data, pos, pending, pendingLen, n);
+                pendingLen += n;
+                pos += n;
+                if (pendingLen < packetSize)
+                    break;
+                drainPending(0);
+                continue;
+            }
+
+            while (end - pos >= packetSize)
+            {
+                if (!deliver(data, pos))
+                {
+                    // 失锁：从出错包的下一个字节开始重新搜索
+                    pos += 1;
+                    break;
+                }
+                pos += packetSize;
+            }
+
+            if (locked && pos < end)
+            {
+                pendingLen = end - pos;
+                System.arraycopy(data, pos, pending, 0, pendingLen);
+                pos = end;
+            }
+        }
+    }
+
+    private int hunt(byte[] data, int pos, int end)
+    {
+        int n = Math.min(pending.length - pendingLen, end - pos);
+        System.arraycopy(data, pos, pending, pendingLen, n);
+        pendingLen += n;
+
+        int p = 0;
+        while (!locked)
+        {
+            p = Bytes.indexOf(pending, p, pendingLen, MPEG2.TS_SYNC_BYTE);
+            if (p < 0)
+            {
+                skippedByteCount += pendingLen;
+                pendingLen = 0;
+                break;
+            }
+
+            int size = probe(p);
+            if (size > 0)
+            {
+                lock(size);
+                int start = p - prefixSize;
+                if (start < 0)
+                    start += packetSize; // 首包前缀不完整，从下一个包开始输出
+                skippedByteCount += start;
+                drainPending(start);
+                p = 0; // 若在暂存数据中再次失锁，则重新搜索
+                continue;
+            }
+            if (size < 0)
+            {
+                // 数据不足以判定，保留候选位置（及可能存在的M2TS前缀）之后的数据，等待后续输入
+                int keep = Math.max(0, p - (M2TS_PACKET_SIZE - MPEG2.TS_PACKET_SIZE));
+                skippedByteCount += keep;
+                compact(keep);
+                break;
+            }
+            p += 1;
+        }
+        return pos + n;
+    }
+
+    /**
+     * 按包长从小到大依次确认候选位置。
+     *
+     * @return 确认成功的包长；0表示所有包长均不符合；-1表示数据不足，尚无法判定。
+     */
+    private int probe(int p)
+    {
+        for (int size : CANDIDATE_SIZES)
+        {
+            int k = 1;
+            while (k < confirmationDepth)
+            {
+                int idx = p + k * size;
+                if (idx >= pendingLen)
+                    return -1;
+                if (pending[idx] != SYNC)
+                    break;
+                k++;
+            }
+            if (k == confirmationDepth)
+                return size;
+        }
+        return 0;
+    }
+
+    private void lock(int size)
+    {
+        locked = true;
+        packetSize = size;
+        prefixSize = (size == M2TS_PACKET_SIZE) ? 4 : 0;
+        badSyncCount = 0;
+    }
+
+    /**
+     * 输出暂存区中自 start 开始的完整包，剩余不足一个包的数据移到暂存区头部。
+     */
+    private void drainPending(int start)
+    {
+        int pos = start;
+        while (locked && pendingLen - pos >= packetSize)
+        {
+            if (!deliver(pending, pos))
+            {
+                pos += 1;
+                break;
+            }
+            pos += packetSize;
+        }
+        compact(pos);
+    }
+
+    /**
+     * @return 是否仍保持锁定。
+     */
+    private boolean deliver(byte[] buffer, int packetStart)
+    {
+        int sync = packetStart + prefixSize;
+        if (buffer[sync] == SYNC)
+        {
+            badSyncCount = 0;
+            packetCount++;
+            consumer.accept(buffer, sync);
+            return true;
+        }
+
+        droppedPacketCount++;
+        badSyncCount++;
+        if (badSyncCount < lossThreshold)
+            return true;
+
+        locked = false;
+        syncLossCount++;
+        return false;
+    }
+
+    private void compact(int from)
+    {
+        int remain = pendingLen - from;
+        if (remain > 0 && from > 0)
+            System.arraycopy(pending, from, pending, 0, remain);
+        pendingLen = Math.max(remain, 0);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.mpeg2;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * 按列（struct-of-arrays）批量解码传输包包头。<p>
+ * 一次调用在一个紧凑循环中处理缓冲区内连续排列的 N 个包，把 PID、连续计数器、PUSI、TEI、
+ * 加扰控制、适配字段控制与负载起始位置分别填入各自的基本类型数组（第 i 个包对应各数组的下标 i）。
+ * 之后的按PID统计、过滤与连续性检查可以直接在数组上进行，不再与对象调用交织。
+ * <p>
+ * 同步字节不是0x47的包，其PID列填入 {@link MPEG2#INVALID_PID}，其余列无意义。
+ * 字段语义与 {@link TransportPackets} 一致。列数组可以由调用者提供并反复使用。
+ */
+public final class TransportPacketColumns
+{
+    private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BUFFER_INT_BE = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    public final int[] pid;
+    public final byte[] cc;
+    public final byte[] pusi;
+    public final byte[] tei;
+    public final byte[] scrambling;
+    public final byte[] afc;
+    public final short[] payloadOffset;
+
+    private int size;
+
+    public TransportPacketColumns(int capacity)
+    {
+        this(new int[capacity], new byte[capacity], new byte[capacity], new byte[capacity],
+             new byte[capacity], new byte[capacity], new short[capacity]);
+    }
+
+    /**
+     * 使用调用者提供的列数组（长度必须相同）。
+     */
+    public TransportPacketColumns(int[] pid, byte[] cc, byte[] pusi, byte[] tei,
+                                  byte[] scrambling, byte[] afc, short[] payloadOffset)
+    {
+        int capacity = pid.length;
+        if (cc.length != capacity || pusi.length != capacity || tei.length != capacity ||
+            scrambling.length != capacity || afc.length != capacity || payloadOffset.length != capacity)
+            throw new IllegalArgumentException("column length mismatch");
+        this.pid = pid;
+        this.cc = cc;
+        this.pusi = pusi;
+        this.tei = tei;
+        this.scrambling = scrambling;
+        this.afc = afc;
+        this.payloadOffset = payloadOffset;
+    }
+
+    public int capacity()
+    {
+        return pid.length;
+    }
+
+    /**
+     * @return 最近一次解码的包数
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * 解码连续排列的188字节传输包。
+     *
+     * @param buf   缓冲区
+     * @param off   第一个包的起始位置
+     * @param count 包数（不超过容量）
+     * @return 解码的包数
+     */
+    public int decode(byte[] buf, int off, int count)
+    {
+        return decode(buf, off, count, MPEG2.TS_PACKET_SIZE);
+    }
+
+    /**
+     * 解码按固定间隔排列的传输包（如192字节的M2TS包，off 应指向第一个包的TS包头）。
+     *
+     * @param buf    缓冲区
+     * @param off    第一个包的TS包头位置
+     * @param count  包数（不超过容量）
+     * @param stride 相邻两个包的间隔
+     * @return 解码的包数
+     */
+    public int decode(byte[] buf, int off, int count, int stride)
+    {
+        Objects.checkFromIndexSize(0, count, capacity());
+        if (count > 0)
+            Objects.checkFromIndexSize(off, (count - 1) * stride + MPEG2.TS_PACKET_SIZE, buf.length);
+
+        int[] pid = this.pid;
+        short[] payloadOffset = this.payloadOffset;
+        // 第一遍按包间隔收集包头（4字节）与适配字段长度字节，第二遍在连续数组上拆分各列（可被JIT向量化）。
+        for (int i = 0, p = off; i < count; i++, p += stride)
+        {
+            pid[i] = (int) INT_BE.get(buf, p);
+            payloadOffset[i] = (short) (buf[p + 4] & 0xFF);
+        }
+        split(count);
+        size = count;
+        return count;
+    }
+
+    /**
+     * 解码缓冲区（堆内或堆外，绝对位置）中按固定间隔排列的传输包。
+     */
+    public int decode(ByteBuffer buf, int off, int count, int stride)
+    {
+        Objects.checkFromIndexSize(0, count, capacity());
+        if (count > 0)
+            Objects.checkFromIndexSize(off, (count - 1) * stride + MPEG2.TS_PACKET_SIZE, buf.limit());
+
+        int[] pid = this.pid;
+        short[] payloadOffset = this.payloadOffset;
+        for (int i = 0, p = off; i < count; i++, p += stride)
+        {
+            pid[i] = (int) BUFFER_INT_BE.get(buf, p);
+            payloadOffset[i] = (short) (buf.get(p + 4) & 0xFF);
+        }
+        split(count);
+        size = count;
+        return count;
+    }
+
+    // pid列此时暂存原始包头，payloadOffset列暂存 adaptation_field_length。
+    private void split(int count)
+    {
+        int[] pid = this.pid;
+        byte[] cc = this.cc, pusi = this.pusi, tei = this.tei, scrambling = this.scrambling, afc = this.afc;
+        short[] payloadOffset = this.payloadOffset;
+        for (int i = 0; i < count; i++)
+        {
+            int header = pid[i];
+            int hasAdaptationField = (header >>> 5) & 0b1;
+            tei[i] = (byte) ((header >>> 23) & 0b1);
+            pusi[i] = (byte) ((header >>> 22) & 0b1);
+            scrambling[i] = (byte) ((header >>> 6) & 0b11);
+            afc[i] = (byte) ((header >>> 4) & 0b11);
+            cc[i] = (byte) (header & 0b1111);
+            payloadOffset[i] = (short) (MPEG2.TS_PACKET_HEADER_SIZE + hasAdaptationField * (1 + payloadOffset[i]));
+            pid[i] = ((header >>> 24) == MPEG2.TS_SYNC_BYTE)
+                     ? (header >>> 8) & MPEG2.PID_MASK
+                     : MPEG2.INVALID_PID;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.mpeg2;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 传输包包头的无状态访问方法。<p>
+ * 与 {@link m2tk.mpeg2.decoder.TransportPacketDecoder} 中的同名读取方法语义一致，
+ * 但直接作用于缓冲区与包起始位置，不需要 Encoding 与 attach，也不创建任何对象，
+ * 适合在热循环中对大量传输包做分类。调用者负责保证 offset 处有完整的188字节传输包。
+ */
+public final class TransportPackets
+{
+    private TransportPackets()
+    {
+    }
+
+    public static int syncByte(byte[] buf, int off)
+    {
+        return buf[off] & 0xFF;
+    }
+
+    public static int tei(byte[] buf, int off)
+    {
+        return (buf[off + 1] >> 7) & 0b1;
+    }
+
+    public static int pusi(byte[] buf, int off)
+    {
+        return (buf[off + 1] >> 6) & 0b1;
+    }
+
+    public static int priority(byte[] buf, int off)
+    {
+        return (buf[off + 1] >> 5) & 0b1;
+    }
+
+    public static int pid(byte[] buf, int off)
+    {
+        return ((buf[off + 1] << 8) | (buf[off + 2] & 0xFF)) & MPEG2.PID_MASK;
+    }
+
+    public static int scrambling(byte[] buf, int off)
+    {
+        return (buf[off + 3] >> 6) & 0b11;
+    }
+
+    public static int afc(byte[] buf, int off)
+    {
+        return (buf[off + 3] >> 4) & 0b11;
+    }
+
+    public static int cc(byte[] buf, int off)
+    {
+        return buf[off + 3] & 0b1111;
+    }
+
+    public static boolean hasAdaptationField(byte[] buf, int off)
+    {
+        return (buf[off + 3] & 0x20) != 0;
+    }
+
+    public static boolean hasPayload(byte[] buf, int off)
+    {
+        return (buf[off + 3] & 0x10) != 0;
+    }
+
+    /**
+     * @return 适配字段长度（含 adaptation_field_length 字节），无适配字段时为0
+     */
+    public static int adaptationFieldLength(byte[] buf, int off)
+    {
+        return hasAdaptationField(buf, off) ? 1 + (buf[off + 4] & 0xFF) : 0;
+    }
+
+    /**
+     * @return 负载在包内的起始位置（相对于包起始位置），与
+     * {@link m2tk.mpeg2.decoder.TransportPacketDecoder#getPayloadStartPosition()} 相同。
+     */
+    public static int payloadOffset(byte[] buf, int off)
+    {
+        return MPEG2.TS_PACKET_HEADER_SIZE + adaptationFieldLength(buf, off);
+    }
+
+    /**
+     * @return 适配字段中是否含有PCR（适配字段长度合法且 PCR_flag 置位）
+     */
+    public static boolean hasPCR(byte[] buf, int off)
+    {
+        if (!hasAdaptationField(buf, off))
+            return false;
+        int length = buf[off + 4] & 0xFF;
+        return length >= 7 && length < 184 && (buf[off + 5] & 0x10) != 0;
+    }
+
+    /**
+     * @return PCR值（27MHz时钟单位）。调用前应以 {@link #hasPCR(byte[], int)} 确认存在PCR。
+     */
+    public static long pcr(byte[] buf, int off)
+    {
+        long bits = ((buf[off + 6] & 0xFFL) << 40) |
+                    ((buf[off + 7] & 0xFFL) << 32) |
+                    ((buf[off + 8] & 0xFFL) << 24) |
+                    ((buf[off + 9] & 0xFFL) << 16) |
+                    ((buf[off + 10] & 0xFFL) << 8) |
+                    (buf[off + 11] & 0xFFL);
+        long base = bits >>> 15;
+        long extension = bits & 0x1FF;
+        return ProgramClockReference.value(base, extension);
+    }
+
+    public static int pid(ByteBuffer buf, int off)
+    {
+        return ((buf.get(off + 1) << 8) | (buf.get(off + 2) & 0xFF)) & MPEG2.PID_MASK;
+    }
+
+    public static int tei(ByteBuffer buf, int off)
+    {
+        return (buf.get(off + 1) >> 7) & 0b1;
+    }
+
+    public static int pusi(ByteBuffer buf, int off)
+    {
+        return (buf.get(off + 1) >> 6) & 0b1;
+    }
+
+    public static int scrambling(ByteBuffer buf, int off)
+    {
+        return (buf.get(off + 3) >> 6) & 0b11;
+    }
+
+    public static int afc(ByteBuffer buf, int off)
+    {
+        return (buf.get(off + 3) >> 4) & 0b11;
+    }
+
+    public static int cc(ByteBuffer buf, int off)
+    {
+        return buf.get(off + 3) & 0b1111;
+    }
+
+    public static int payloadOffset(ByteBuffer buf, int off)
+    {
+        return ((buf.get(off + 3) & 0x20) != 0)
+               ? MPEG2.TS_PACKET_HEADER_SIZE + 1 + (buf.get(off + 4) & 0xFF)
+               : MPEG2.TS_PACKET_HEADER_SIZE;
+    }
+}
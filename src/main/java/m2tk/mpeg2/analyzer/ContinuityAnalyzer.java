@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.mpeg2.analyzer;
+
+import m2tk.io.PacketConsumer;
+import m2tk.mpeg2.MPEG2;
+import m2tk.mpeg2.decoder.TransportPacketDecoder;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * 按PID检查连续计数（continuity_counter）的流式分析器。<p>
+ * 判定规则与 {@link TransportPacketDecoder#isDuplicate(byte[], int, byte[], int)} 一致：
+ * 有负载的包连续计数加一，无负载的包保持不变；连续计数与前一个包相同、且除PCR外内容完全一致的包是合法的重复包，
+ * 但重复包最多只能出现一次；计数相同而内容不同，或者出现第二次重复，都判定为连续计数错误。
+ * discontinuity_indicator 置位的包重新开始计数，空包与带传输错误的包不参与判断。
+ * <p>
+ * 分析器不保留前一个包的内容：每个有负载的包计算一个64位散列（按 {@link TransportPacketDecoder#PACKET_MASK_IGNORE_PCR}
+ * 屏蔽PCR），与连续计数一起保存在以PID为下标的数组中，重复包的判定只比较散列。
+ * 散列每次读取8个字节，每个包的处理时间是常数，过程中不创建对象。
+ * <p>
+ * 分析器不是线程安全的。
+ */
+public final class ContinuityAnalyzer implements PacketConsumer
+{
+    /** 合法的重复包。 */
+    public static final int RESULT_DUPLICATE = 0x01;
+    /** 适配字段中的 discontinuity_indicator 置位，连续计数重新开始。 */
+    public static final int RESULT_DISCONTINUITY_INDICATED = 0x02;
+    /** 连续计数错误（丢包、乱序或重复超过一次）。 */
+    public static final int RESULT_CC_ERROR = 0x04;
+    /** 连续计数与前一个包相同但内容不同（同时置位 {@link #RESULT_CC_ERROR}）。 */
+    public static final int RESULT_CONTENT_MISMATCH = 0x08;
+
+    private static final int PID_COUNT = MPEG2.MAX_PID + 1;
+    private static final int DUPLICATED = 0x10;
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long PCR_MASK_0 = (long) LONG_LE.get(TransportPacketDecoder.PACKET_MASK_IGNORE_PCR, 0);
+    private static final long PCR_MASK_1 = (long) LONG_LE.get(TransportPacketDecoder.PACKET_MASK_IGNORE_PCR, 8);
+    private static final long SEED_0 = 0x243F6A8885A308D3L;
+    private static final long SEED_1 = 0x13198A2E03707344L;
+    private static final long K = 0x9E3779B97F4A7C15L;
+
+    // lastCC: 低4位为上一个计数值，DUPLICATED位表示上一个包已是重复包，-1表示尚无记录。
+    private final byte[] lastCC = new byte[PID_COUNT];
+    private final long[] lastHashes = new long[PID_COUNT];
+    private final long[] errorCounts = new long[PID_COUNT];
+    private final long[] duplicateCounts = new long[PID_COUNT];
+    private long totalErrorCount;
+    private long totalDuplicateCount;
+    private long mismatchCount;
+    private long discontinuityCount;
+    private long packetCount;
+
+    public ContinuityAnalyzer()
+    {
+        reset();
+    }
+
+    public void reset()
+    {
+        Arrays.fill(lastCC, (byte) -1);
+        Arrays.fill(errorCounts, 0);
+        Arrays.fill(duplicateCounts, 0);
+        totalErrorCount = 0;
+        totalDuplicateCount = 0;
+        mismatchCount = 0;
+        discontinuityCount = 0;
+        packetCount = 0;
+    }
+
+    @Override
+    public void accept(byte[] buffer, int offset)
+    {
+        analyze(buffer, offset);
+    }
+
+    /**
+     * 分析一个传输包。
+     *
+     * @param buffer 缓冲区
+     * @param offset 包起始位置
+     * @return 分析结果（RESULT_XXX 的组合），连续的正常包返回0
+     */
+    public int analyze(byte[] buffer, int offset)
+    {
+        packetCount++;
+        int b1 = buffer[offset + 1] & 0xFF;
+        int pid = ((b1 << 8) | (buffer[offset + 2] & 0xFF)) & MPEG2.PID_MASK;
+        if ((b1 & 0x80) != 0 || pid == MPEG2.NULL_PACKET_PID)
+            return 0;
+
+        int b3 = buffer[offset + 3] & 0xFF;
+        int afc = (b3 >> 4) & 0b11;
+        int cc = b3 & 0b1111;
+        boolean indicated = false;
+        boolean pcr = false;
+        if ((afc & 0b10) != 0)
+        {
+            int length = buffer[offset + 4] & 0xFF;
+            if (length > 0)
+            {
+                int flags = buffer[offset + 5];
+                indicated = (flags & 0x80) != 0;
+                pcr = length >= 7 && (flags & 0x10) != 0;
+            }
+        }
+
+        boolean hasPayload = (afc & 0b01) != 0;
+        long hash = hasPayload ? hash(buffer, offset, pcr) : 0;
+        int state = lastCC[pid];
+        int result = 0;
+        int next = cc;
+
+        if (indicated)
+        {
+            result = RESULT_DISCONTINUITY_INDICATED;
+            discontinuityCount++;
+        } else if (state >= 0)
+        {
+            int last = state & 0b1111;
+            int expected = hasPayload ? ((last + 1) & 0b1111) : last;
+            if (cc != expected)
+            {
+                if (hasPayload && cc == last)
+                {
+                    if (hash != lastHashes[pid])
+                        result = RESULT_CC_ERROR | RESULT_CONTENT_MISMATCH;
+                    else if ((state & DUPLICATED) != 0)
+                        result = RESULT_CC_ERROR; // 重复包最多只能出现一次
+                    else
+                        result = RESULT_DUPLICATE;
+                } else
+                {
+                    result = RESULT_CC_ERROR;
+                }
+            }
+        }
+
+        if (result == RESULT_DUPLICATE)
+        {
+            next = cc | DUPLICATED;
+            duplicateCounts[pid]++;
+            totalDuplicateCount++;
+        } else if ((result & RESULT_CC_ERROR) != 0)
+        {
+            errorCounts[pid]++;
+            totalErrorCount++;
+            if ((result & RESULT_CONTENT_MISMATCH) != 0)
+                mismatchCount++;
+        }
+
+        lastCC[pid] = (byte) next;
+        if (hasPayload)
+            lastHashes[pid] = hash;
+        return result;
+    }
+
+    /**
+     * 整个包（按需屏蔽PCR）的64位散列。每个字只做一次乘法，两路交错以缩短依赖链；
+     * 乘法只向高位扩散，所以每步再循环移位，使高位的差异不会在下一个字中被抵消。
+     */
+    private static long hash(byte[] buffer, int offset, boolean pcr)
+    {
+        long w0 = (long) LONG_LE.get(buffer, offset);
+        long w1 = (long) LONG_LE.get(buffer, offset + 8);
+        if (pcr)
+        {
+            w0 &= PCR_MASK_0;
+            w1 &= PCR_MASK_1;
+        }
+        long h0 = step(SEED_0, w0);
+        long h1 = step(SEED_1, w1);
+        for (int i = 16; i < 176; i += 16)
+        {
+            h0 = step(h0, (long) LONG_LE.get(buffer, offset + i));
+            h1 = step(h1, (long) LONG_LE.get(buffer, offset + i + 8));
+        }
+        h0 = step(h0, (long) LONG_LE.get(buffer, offset + 176));
+        h1 = step(h1, (int) INT_LE.get(buffer, offset + 184) & 0xFFFFFFFFL);
+        return step(step(h0, h1), SEED_1);
+    }
+
+    private static long step(long h, long w)
+    {
+        return Long.rotateLeft((h ^ w) * K, 29);
+    }
+
+    /**
+     * @return 已分析的传输包总数
+     */
+    public long getPacketCount()
+    {
+        return packetCount;
+    }
+
+    public long getErrorCount()
+    {
+        return totalErrorCount;
+    }
+
+    public long getErrorCount(int pid)
+    {
+        return errorCounts[pid];
+    }
+
+    public long getDuplicateCount()
+    {
+        return totalDuplicateCount;
+    }
+
+    public long getDuplicateCount(int pid)
+    {
+        return duplicateCounts[pid];
+    }
+
+    /**
+     * @return 连续计数相同但内容不同的次数（已计入连续计数错误）
+     */
+    public long getContentMismatchCount()
+    {
+        return mismatchCount;
+    }
+
+    /**
+     * @return discontinuity_indicator 置位的次数
+     */
+    public long getIndicatedDiscontinuityCount()
+    {
+        return discontinuityCount;
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.mpeg2.analyzer;
+
+import m2tk.io.PacketConsumer;
+import m2tk.mpeg2.MPEG2;
+import m2tk.mpeg2.TransportPackets;
+
+import java.util.Arrays;
+
+/**
+ * 按PID统计PCR的流式分析器。<p>
+ * 对输入的每个传输包计数，并从携带PCR的包中提取PCR，计算：
+ * <ul>
+ *     <li>PCR间隔（最近一次、最小、最大）；</li>
+ *     <li>传输流码率（由相邻两个PCR之间的包数与时间差得出，另有自上次不连续以来的平均码率）；</li>
+ *     <li>PCR精度：实际PCR与从前一个PCR出发、按平均码率与其间的包数推算出的PCR之差（抖动）；</li>
+ *     <li>不连续：discontinuity_indicator 指示的不连续，以及未指示的跳变（倒退或间隔超过100ms）。</li>
+ * </ul>
+ * PCR值按33位（PCR_base）回绕处理。每个包的处理时间是常数，过程中不创建对象
+ * （不产生 {@link m2tk.mpeg2.ProgramClockReference}）。
+ * 各PID的状态保存在按需分配的基本类型数组中，只有出现过PCR的PID占用存储。
+ * <p>
+ * 判定门限取自 ETSI TR 101 290：PCR间隔不超过40ms，未指示的不连续为间隔超过100ms或倒退，精度在±500ns之内。
+ * 间隔超过100ms时只判定为不连续，不再同时判定为间隔超限。
+ * <p>
+ * 分析器不是线程安全的。
+ */
+public final class PCRAnalyzer implements PacketConsumer
+{
+    /** 包中携带有效的PCR。 */
+    public static final int RESULT_PCR = 0x01;
+    /** 适配字段中的 discontinuity_indicator 置位，PCR重新开始计算。 */
+    public static final int RESULT_DISCONTINUITY_INDICATED = 0x02;
+    /** 未经指示的PCR跳变（倒退或间隔超过 {@link #DISCONTINUITY_LIMIT_TICKS}）。 */
+    public static final int RESULT_DISCONTINUITY = 0x04;
+    /** PCR间隔超过 {@link #REPETITION_LIMIT_TICKS}。 */
+    public static final int RESULT_INTERVAL_EXCEEDED = 0x08;
+    /** PCR抖动超过 {@link #ACCURACY_LIMIT_NANOS}。 */
+    public static final int RESULT_ACCURACY_EXCEEDED = 0x10;
+
+    /** PCR取值范围（33位PCR_base × 300）。 */
+    public static final long PCR_MODULUS = (1L << 33) * 300;
+    public static final long REPETITION_LIMIT_TICKS = 40L * MPEG2.SYSTEM_CLOCK_FREQUENCY_HZ / 1000;
+    public static final long DISCONTINUITY_LIMIT_TICKS = 100L * MPEG2.SYSTEM_CLOCK_FREQUENCY_HZ / 1000;
+    public static final long ACCURACY_LIMIT_NANOS = 500;
+
+    private static final long TS_PACKET_BIT_TICKS = (long) MPEG2.TS_PACKET_BIT_SIZE * MPEG2.SYSTEM_CLOCK_FREQUENCY_HZ;
+
+    // 每个PID占用 FIELDS 个long
+    private static final int LAST_PCR = 0;
+    private static final int LAST_PACKET = 1;
+    private static final int PCR_COUNT = 2;
+    private static final int LAST_INTERVAL = 3;
+    private static final int MIN_INTERVAL = 4;
+    private static final int MAX_INTERVAL = 5;
+    private static final int SUM_TICKS = 6;
+    private static final int SUM_PACKETS = 7;
+    private static final int LAST_BITRATE = 8;
+    private static final int LAST_JITTER = 9;
+    private static final int MAX_JITTER = 10;
+    private static final int INDICATED_DISCONTINUITIES = 11;
+    private static final int DISCONTINUITIES = 12;
+    private static final int INTERVAL_ERRORS = 13;
+    private static final int ACCURACY_ERRORS = 14;
+    private static final int FIELDS = 15;
+
+    private final int[] slots; // slot + 1，0表示该PID尚未出现PCR
+    private int[] pids;
+    private long[] states;
+    private int slotCount;
+    private long packetCount;
+
+    public PCRAnalyzer()
+    {
+        slots = new int[MPEG2.MAX_PID + 1];
+        pids = new int[4];
+        states = new long[4 * FIELDS];
+    }
+
+    public void reset()
+    {
+        Arrays.fill(slots, 0);
+        slotCount = 0;
+        packetCount = 0;
+    }
+
+    @Override
+    public void accept(byte[] buffer, int offset)
+    {
+        analyze(buffer, offset);
+    }
+
+    /**
+     * 分析一个传输包。
+     *
+     * @param buffer 缓冲区
+     * @param offset 包起始位置
+     * @return 分析结果（RESULT_XXX 的组合），不携带PCR的包返回0
+     */
+    public int analyze(byte[] buffer, int offset)
+    {
+        long position = packetCount++;
+        if (!TransportPackets.hasPCR(buffer, offset) || TransportPackets.tei(buffer, offset) != 0)
+            return 0;
+
+        int pid = TransportPackets.pid(buffer, offset);
+        boolean indicated = (buffer[offset + 5] & 0x80) != 0;
+        return update(slotOf(pid), TransportPackets.pcr(buffer, offset), position, indicated);
+    }
+
+    /**
+     * @return 已分析的传输包总数
+     */
+    public long getPacketCount()
+    {
+        return packetCount;
+    }
+
+    /**
+     * @return 出现过PCR的PID
+     */
+    public int[] getPCRPIDs()
+    {
+        return Arrays.copyOf(pids, slotCount);
+    }
+
+    public long getPCRCount(int pid)
+    {
+        return field(pid, PCR_COUNT, 0);
+    }
+
+    /**
+     * @return 最近一次的PCR值，未出现过PCR时返回-1
+     */
+    public long getLastPCR(int pid)
+    {
+        return field(pid, LAST_PCR, -1);
+    }
+
+    /**
+     * @return 最近两个PCR之间的码率（bps），不可用时返回0
+     */
+    public long getBitrate(int pid)
+    {
+        return field(pid, LAST_BITRATE, 0);
+    }
+
+    /**
+     * @return 自首个PCR（或最近一次不连续）以来的平均码率（bps），不可用时返回0
+     */
+    public long getAverageBitrate(int pid)
+    {
+        long ticks = field(pid, SUM_TICKS, 0);
+        return (ticks == 0) ? 0 : field(pid, SUM_PACKETS, 0) * TS_PACKET_BIT_TICKS / ticks;
+    }
+
+    public long getLastIntervalNanos(int pid)
+    {
+        return toNanos(field(pid, LAST_INTERVAL, 0));
+    }
+
+    /**
+     * @return 最小PCR间隔（ns），尚无间隔时返回0
+     */
+    public long getMinIntervalNanos(int pid)
+    {
+        long ticks = field(pid, MIN_INTERVAL, Long.MAX_VALUE);
+        return (ticks == Long.MAX_VALUE) ? 0 : toNanos(ticks);
+    }
+
+    public long getMaxIntervalNanos(int pid)
+    {
+        return toNanos(field(pid, MAX_INTERVAL, 0));
+    }
+
+    /**
+     * @return 最近一个PCR的抖动（ns，正值表示PCR晚于预期）
+     */
+    public long getLastJitterNanos(int pid)
+    {
+        return field(pid, LAST_JITTER, 0);
+    }
+
+    /**
+     * @return 抖动绝对值的最大值（ns）
+     */
+    public long getMaxJitterNanos(int pid)
+    {
+        return field(pid, MAX_JITTER, 0);
+    }
+
+    public long getIndicatedDiscontinuityCount(int pid)
+    {
+        return field(pid, INDICATED_DISCONTINUITIES, 0);
+    }
+
+    public long getDiscontinuityCount(int pid)
+    {
+        return field(pid, DISCONTINUITIES, 0);
+    }
+
+    public long getIntervalErrorCount(int pid)
+    {
+        return field(pid, INTERVAL_ERRORS, 0);
+    }
+
+    public long getAccuracyErrorCount(int pid)
+    {
+        return field(pid, ACCURACY_ERRORS, 0);
+    }
+
+    private int update(int slot, long pcr, long position, boolean indicated)
+    {
+        long[] s = states;
+        int base = slot * FIELDS;
+        long last = s[base + LAST_PCR];
+        long lastPosition = s[base + LAST_PACKET];
+        s[base + LAST_PCR] = pcr;
+        s[base + LAST_PACKET] = position;
+        s[base + PCR_COUNT]++;
+
+        if (indicated)
+        {
+            s[base + INDICATED_DISCONTINUITIES]++;
+            restart(base);
+            return RESULT_PCR | RESULT_DISCONTINUITY_INDICATED;
+        }
+        if (last < 0)
+            return RESULT_PCR;
+
+        long delta = pcr - last;
+        if (delta < 0)
+            delta += PCR_MODULUS; // 回绕；倒退的PCR在此变为极大的间隔
+        if (delta > DISCONTINUITY_LIMIT_TICKS)
+        {
+            s[base + DISCONTINUITIES]++;
+            restart(base);
+            return RESULT_PCR | RESULT_DISCONTINUITY;
+        }
+
+        int result = RESULT_PCR;
+        long packets = position - lastPosition;
+        s[base + LAST_INTERVAL] = delta;
+        s[base + MIN_INTERVAL] = Math.min(s[base + MIN_INTERVAL], delta);
+        s[base + MAX_INTERVAL] = Math.max(s[base + MAX_INTERVAL], delta);
+        if (delta > REPETITION_LIMIT_TICKS)
+        {
+            s[base + INTERVAL_ERRORS]++;
+            result |= RESULT_INTERVAL_EXCEEDED;
+        }
+        if (delta > 0)
+            s[base + LAST_BITRATE] = packets * TS_PACKET_BIT_TICKS / delta;
+
+        long sumTicks = s[base + SUM_TICKS];
+        long sumPackets = s[base + SUM_PACKETS];
+        if (sumPackets > 0)
+        {
+            // 按平均码率推算本次间隔应有的时长，实际与推算之差即为抖动
+            double expected = (double) packets * sumTicks / sumPackets;
+            long jitter = Math.round((delta - expected) * 1000 / MPEG2.SYSTEM_CLOCK_FREQUENCY_MHZ);
+            s[base + LAST_JITTER] = jitter;
+            s[base + MAX_JITTER] = Math.max(s[base + MAX_JITTER], Math.abs(jitter));
+            if (Math.abs(jitter) > ACCURACY_LIMIT_NANOS)
+            {
+                s[base + ACCURACY_ERRORS]++;
+                result |= RESULT_ACCURACY_EXCEEDED;
+            }
+        }
+        s[base + SUM_TICKS] = sumTicks + delta;
+        s[base + SUM_PACKETS] = sumPackets + packets;
+        return result;
+    }
+
+    private void restart(int base)
+    {
+        states[base + SUM_TICKS] = 0;
+        states[base + SUM_PACKETS] = 0;
+        states[base + LAST_BITRATE] = 0;
+        states[base + LAST_JITTER] = 0;
+    }
+
+    private int slotOf(int pid)
+    {
+        int slot = slots[pid] - 1;
+        if (slot >= 0)
+            return slot;
+
+        if (slotCount == pids.length)
+        {
+            pids = Arrays.copyOf(pids, slotCount << 1);
+            states = Arrays.copyOf(states, (slotCount << 1) * FIELDS);
+        }
+        slot = slotCount++;
+        pids[slot] = pid;
+        slots[pid] = slot + 1;
+
+        int base = slot * FIELDS;
+        Arrays.fill(states, base, base + FIELDS, 0L);
+        states[base + LAST_PCR] = -1;
+        states[base + MIN_INTERVAL] = Long.MAX_VALUE;
+        return slot;
+    }
+
+    private long field(int pid, int field, long absent)
+    {
+        if (pid < MPEG2.MIN_PID || pid > MPEG2.MAX_PID)
+            throw new IllegalArgumentException("invalid pid: " + pid);
+        int slot = slots[pid] - 1;
+        return (slot < 0) ? absent : states[slot * FIELDS + field];
+    }
+
+    private static long toNanos(long ticks)
+    {
+        return ticks * 1000 / MPEG2.SYSTEM_CLOCK_FREQUENCY_MHZ;
+    }
+}
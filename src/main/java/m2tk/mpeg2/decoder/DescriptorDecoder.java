@@ -22,6 +22,8 @@ import m2tk.mpeg2.MPEG2;
 
 public class DescriptorDecoder extends Decoder
 {
+    private Encoding untrusted;
+
     public DescriptorDecoder()
     {
         super("DescriptorDecoder");
@@ -42,6 +44,23 @@ public class DescriptorDecoder extends Decoder
         return size == MPEG2.DESCRIPTOR_HEADER_LENGTH + target.readUINT8(1);
     }
 
+    /**
+     * 挂接到描述符上。描述符内部的长度字段未经段结构校验，所以描述符区域总是按不可信处理（逐次检查边界）：
+     * 可信的描述符通过解码器自己的享元对象读取（不修改target），此时 {@link #getEncoding()} 返回该享元对象。
+     */
+    @Override
+    public void attach(Encoding target)
+    {
+        if (target == null || !target.isTrusted())
+        {
+            super.attach(target);
+            return;
+        }
+        if (untrusted == null)
+            untrusted = Encoding.flyweight();
+        super.attach(untrusted.rebaseUntrusted(target));
+    }
+
     public int getTag()
     {
         return encoding.readUINT8(0);
@@ -56,4 +75,9 @@ public class DescriptorDecoder extends Decoder
     {
         return encoding.readSelector(2);
     }
+
+    public Encoding getPayload(Encoding target)
+    {
+        return encoding.readSelector(2, encoding.size() - 2, target);
+    }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.mpeg2.decoder;
+
+import m2tk.encoding.Decoder;
+import m2tk.encoding.Encoding;
+import m2tk.mpeg2.MPEG2;
+
+import java.util.Objects;
+
+/**
+ * 描述符循环游标。<p>
+ * 逐个访问描述符循环中的描述符，当前描述符的标签、位置与长度以int形式给出，
+ * 遍历与按标签查找都不创建任何对象（不产生Encoding、Optional或数组）。
+ * 需要进一步解析时，用 {@link #attach(Decoder)} 把描述符解码器关联到当前描述符：
+ * 解码器关联的是游标内部复用的视图，该视图只在 {@link #descriptor()}、{@link #attach(Decoder)} 时重新指向当前描述符，
+ * {@link #next()} 不会移动它。因此每次前进后都要重新调用 attach()（或 descriptor()），
+ * 否则解码器仍然解码前一个描述符；同一个视图被再次指向时，之前取得的视图与关联的解码器也随之改变。
+ * <p>
+ * 游标本身可以复用：调用 {@link #reset(Encoding)} 即可指向新的描述符循环。
+ * 遇到长度越界的描述符时遍历结束，并通过 {@link #isTruncated()} 报告。
+ * <pre>
+ *     DescriptorLoopCursor cursor = new DescriptorLoopCursor();
+ *     cursor.reset(loop);
+ *     while (cursor.next(ShortEventDescriptorDecoder.TAG))
+ *     {
+ *         cursor.attach(sed);
+ *         ...
+ *     }
+ * </pre>
+ */
+public final class DescriptorLoopCursor
+{
+    private final Encoding view = Encoding.flyweight();
+    private Encoding loop;
+    private int limit;
+    private int next;
+    private int offset;
+    private int tag;
+    private int length;
+    private boolean truncated;
+
+    public DescriptorLoopCursor()
+    {
+        reset(null);
+    }
+
+    /**
+     * 指向新的描述符循环，游标位于第一个描述符之前。
+     *
+     * @param loop 描述符循环（可以为null，表示空循环）
+     * @return 本对象
+     */
+    public DescriptorLoopCursor reset(Encoding loop)
+    {
+        this.loop = loop;
+        limit = (loop == null) ? 0 : loop.size();
+        next = 0;
+        offset = -1;
+        tag = -1;
+        length = 0;
+        truncated = false;
+        return this;
+    }
+
+    /**
+     * 前进到下一个描述符。
+     *
+     * @return 存在下一个（完整的）描述符时返回true
+     */
+    public boolean next()
+    {
+        if (next + MPEG2.DESCRIPTOR_HEADER_LENGTH > limit)
+        {
+            truncated = next < limit;
+            return end();
+        }
+
+        int payloadLength = loop.readUINT8(next + 1);
+        if (next + MPEG2.DESCRIPTOR_HEADER_LENGTH + payloadLength > limit)
+        {
+            truncated = true;
+            return end();
+        }
+
+        offset = next;
+        tag = loop.readUINT8(next);
+        length = payloadLength;
+        next += MPEG2.DESCRIPTOR_HEADER_LENGTH + payloadLength;
+        return true;
+    }
+
+    /**
+     * 前进到下一个指定标签的描述符。
+     *
+     * @param tag 描述符标签
+     * @return 找到时返回true
+     */
+    public boolean next(int tag)
+    {
+        while (next())
+        {
+            if (this.tag == tag)
+                return true;
+        }
+        return false;
+    }
+
+    public boolean hasNext()
+    {
+        return next < limit;
+    }
+
+    /**
+     * @return 循环中是否出现了长度越界的描述符（遍历因此提前结束）
+     */
+    public boolean isTruncated()
+    {
+        return truncated;
+    }
+
+    /**
+     * @return 当前描述符标签（descriptor_tag）
+     */
+    public int tag()
+    {
+        return tag;
+    }
+
+    /**
+     * @return 当前描述符在循环中的起始位置（指向 descriptor_tag）
+     */
+    public int offset()
+    {
+        return offset;
+    }
+
+    /**
+     * @return 当前描述符负载在循环中的起始位置（越过 descriptor_tag 与 descriptor_length）
+     */
+    public int payloadOffset()
+    {
+        return offset + MPEG2.DESCRIPTOR_HEADER_LENGTH;
+    }
+
+    /**
+     * @return 当前描述符负载长度（descriptor_length）
+     */
+    public int payloadLength()
+    {
+        return length;
+    }
+
+    /**
+     * @return 当前描述符总长度（含描述符头）
+     */
+    public int length()
+    {
+        return MPEG2.DESCRIPTOR_HEADER_LENGTH + length;
+    }
+
+    /**
+     * @return 指向当前描述符的复用视图。游标前进时视图不动，前进后需再次调用本方法（或 {@link #attach(Decoder)}）
+     */
+    public Encoding descriptor()
+    {
+        if (offset < 0)
+            throw new IllegalStateException("no current descriptor");
+        return loop.readSelector(offset, MPEG2.DESCRIPTOR_HEADER_LENGTH + length, view);
+    }
+
+    /**
+     * 将解码器关联到当前描述符。每次 {@link #next()} 之后都需要重新关联。
+     *
+     * @param decoder 描述符解码器
+     * @return 解码器接受当前描述符时返回true，否则不做关联并返回false
+     */
+    public boolean attach(Decoder decoder)
+    {
+        Objects.requireNonNull(decoder);
+        Encoding descriptor = descriptor();
+        if (!decoder.isAttachable(descriptor))
+            return false;
+        decoder.attach(descriptor);
+        return true;
+    }
+
+    private boolean end()
+    {
+        next = limit;
+        offset = -1;
+        tag = -1;
+        length = 0;
+        return false;
+    }
+}
@@ -25,13 +25,101 @@ import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+/**
+ * 描述符循环解码器。<p>
+ * 可选的标签索引（见 {@link #setIndexEnabled(boolean)}）：启用后，第一次按标签查询时遍历一遍循环，
+ * 记录 256 位的标签存在位图以及每个标签首次出现的位置和出现次数，
+ * 之后在同一次关联（attach）上的按标签查询都是常数时间，不存在的标签无需遍历即可排除。
+ * 重新关联后索引自动失效；但解码器无法察觉所关联的享元对象被重新指向（{@link Encoding#rebase}），
+ * 因此享元对象每次重新指向后都必须再次调用 {@link #attach(Encoding)}，否则索引仍是旧循环的。
+ * <p>
+ * 按标签查询时，长度越界的末尾描述符在两种模式下都不计入（遍历到此结束），启用索引与否结果一致。
+ */
 public class DescriptorLoopDecoder extends Decoder
 {
+    private boolean indexEnabled;
+    private boolean indexed;
+    private final long[] presence = new long[4];
+    private int[] firstOffsets;
+    private int[] counts;
+
     public DescriptorLoopDecoder()
     {
         super(DescriptorLoopDecoder.class.getSimpleName());
     }
 
+    @Override
+    public void attach(Encoding target)
+    {
+        super.attach(target);
+        indexed = false;
+    }
+
+    @Override
+    public void detach()
+    {
+        super.detach();
+        indexed = false;
+    }
+
+    /**
+     * 启用或停用标签索引。对同一个循环按多个标签反复查询时启用可以避免重复遍历。
+     * 关联的享元对象被重新指向后须重新 attach，见类说明。
+     *
+     * @param enabled 是否启用
+     */
+    public void setIndexEnabled(boolean enabled)
+    {
+        indexEnabled = enabled;
+        indexed = false;
+        if (enabled && counts == null)
+        {
+            firstOffsets = new int[256];
+            counts = new int[256];
+        }
+    }
+
+    public boolean isIndexEnabled()
+    {
+        return indexEnabled;
+    }
+
+    /**
+     * @param tag 描述符标签
+     * @return 循环中是否含有指定标签的描述符
+     */
+    public boolean containsDescriptor(int tag)
+    {
+        return firstOffset(tag) >= 0;
+    }
+
+    /**
+     * @param tag 描述符标签
+     * @return 循环中指定标签的描述符个数
+     */
+    public int getDescriptorCount(int tag)
+    {
+        if (indexEnabled)
+        {
+            ensureIndexed();
+            return isPresent(tag) ? counts[tag] : 0;
+        }
+
+        int from = 0;
+        int to = encoding.size();
+        int count = 0;
+        while (from + 2 <= to)
+        {
+            int length = 2 + encoding.readUINT8(from + 1);
+            if (from + length > to)
+                break; // 与索引一致，不完整的描述符不计入
+            if (encoding.readUINT8(from) == tag)
+                count++;
+            from += length;
+        }
+        return count;
+    }
+
     public int getDescriptorCount()
     {
         int from = 0;
@@ -107,6 +195,26 @@ public class DescriptorLoopDecoder extends Decoder
         }
     }
 
+    /**
+     * 与 {@link #forEach(Consumer)} 相同，但每个描述符都通过同一个享元对象（cursor）传给consumer，遍历过程不创建对象。
+     *
+     * @param cursor   享元对象（参见 {@link Encoding#flyweight()}）
+     * @param consumer 描述符处理器，不要在回调之外保存cursor
+     */
+    public void forEach(Encoding cursor, Consumer<Encoding> consumer)
+    {
+        Objects.requireNonNull(cursor);
+        Objects.requireNonNull(consumer);
+        int from = 0;
+        int to = encoding.size();
+        while (from < to)
+        {
+            int length = 2 + encoding.readUINT8(from + 1);
+            consumer.accept(encoding.readSelector(from, length, cursor));
+            from += length;
+        }
+    }
+
     public void forEach(Predicate<Encoding> predicate, Consumer<Encoding> consumer)
     {
         Objects.requireNonNull(predicate);
@@ -142,18 +250,39 @@ public class DescriptorLoopDecoder extends Decoder
         }
     }
 
+    /**
+     * 将游标指向当前关联的描述符循环。
+     *
+     * @param cursor 游标（可以反复使用）
+     * @return cursor
+     */
+    public DescriptorLoopCursor cursor(DescriptorLoopCursor cursor)
+    {
+        return cursor.reset(encoding);
+    }
+
     public Optional<Encoding> findFirstDescriptor(int tag)
     {
-        int from = 0;
-        int to = encoding.size();
-        while (from < to)
-        {
-            int length = 2 + encoding.readUINT8(from + 1);
-            if (encoding.readUINT8(from) == tag)
-                return Optional.of(encoding.readSelector(from, length));
-            from += length;
-        }
-        return Optional.empty();
+        int from = firstOffset(tag);
+        return (from < 0)
+               ? Optional.empty()
+               : Optional.of(encoding.readSelector(from, 2 + encoding.readUINT8(from + 1)));
+    }
+
+    /**
+     * 查找第一个指定标签的描述符，结果写入享元对象，不创建新对象。
+     *
+     * @param tag    描述符标签
+     * @param target 接收结果的享元对象
+     * @return 找到时返回true
+     */
+    public boolean findFirstDescriptor(int tag, Encoding target)
+    {
+        int from = firstOffset(tag);
+        if (from < 0)
+            return false;
+        encoding.readSelector(from, 2 + encoding.readUINT8(from + 1), target);
+        return true;
     }
 
     public Optional<Encoding> findFirstDescriptor(Predicate<Encoding> predicate)
@@ -188,4 +317,60 @@ public class DescriptorLoopDecoder extends Decoder
                ? Optional.empty()
                : Optional.of(list.toArray(new Encoding[0]));
     }
+
+    private int firstOffset(int tag)
+    {
+        if (indexEnabled)
+        {
+            ensureIndexed();
+            return isPresent(tag) ? firstOffsets[tag] : -1;
+        }
+
+        int from = 0;
+        int to = encoding.size();
+        while (from + 2 <= to)
+        {
+            int length = 2 + encoding.readUINT8(from + 1);
+            if (from + length > to)
+                break; // 与索引一致，不完整的描述符不计入
+            if (encoding.readUINT8(from) == tag)
+                return from;
+            from += length;
+        }
+        return -1;
+    }
+
+    private boolean isPresent(int tag)
+    {
+        return (tag & ~0xFF) == 0 && (presence[tag >>> 6] & (1L << tag)) != 0;
+    }
+
+    private void ensureIndexed()
+    {
+        if (indexed)
+            return;
+
+        presence[0] = presence[1] = presence[2] = presence[3] = 0;
+        int from = 0;
+        int to = encoding.size();
+        while (from + 2 <= to)
+        {
+            int tag = encoding.readUINT8(from);
+            int length = 2 + encoding.readUINT8(from + 1);
+            if (from + length > to)
+                break; // 不完整的描述符不计入索引
+            long bit = 1L << tag;
+            if ((presence[tag >>> 6] & bit) == 0)
+            {
+                presence[tag >>> 6] |= bit;
+                firstOffsets[tag] = from;
+                counts[tag] = 1;
+            } else
+            {
+                counts[tag]++;
+            }
+            from += length;
+        }
+        indexed = true;
+    }
 }
@@ -19,6 +19,8 @@ package m2tk.mpeg2.decoder;
 import m2tk.encoding.Decoder;
 import m2tk.encoding.Encoding;
 import m2tk.mpeg2.MPEG2;
+import m2tk.mpeg2.TransportPackets;
+import m2tk.util.Bytes;
 
 public class TransportPacketDecoder extends Decoder
 {
@@ -158,6 +160,70 @@ public class TransportPacketDecoder extends Decoder
         return encoding.readSelector(start);
     }
 
+    public Encoding getAdaptationField(Encoding target)
+    {
+        if (!containsAdaptationField())
+            throw new UnsupportedOperationException("no such field");
+        int length = getAdaptationFieldLength();
+        return encoding.readSelector(4, length, target);
+    }
+
+    public Encoding getPayload(Encoding target)
+    {
+        if (!containsPayload())
+            throw new UnsupportedOperationException("no such field");
+        int start = getPayloadStartPosition();
+        return encoding.readSelector(start, encoding.size() - start, target);
+    }
+
+    // 以下 tryXXX 方法不抛出异常：字段不存在或长度越界时返回 false 或 -1，适用于误码率高的码流。
+
+    /**
+     * @return 负载起始位置；无负载或适配字段长度越界时返回-1
+     */
+    public int tryGetPayloadStartPosition()
+    {
+        int control = getAdaptationFieldControl();
+        if (control == 0b01)
+            return MPEG2.TS_PACKET_HEADER_SIZE;
+        if (control != 0b11)
+            return -1;
+        int start = MPEG2.TS_PACKET_HEADER_SIZE + 1 + encoding.readUINT8(4);
+        return (start < encoding.size()) ? start : -1;
+    }
+
+    /**
+     * 读取适配字段（含length字段），不抛出异常。
+     *
+     * @param target 接收结果的享元对象
+     * @return 不含适配字段或适配字段长度越界时返回false
+     */
+    public boolean tryGetAdaptationField(Encoding target)
+    {
+        if (!containsAdaptationField())
+            return false;
+        int length = 1 + encoding.readUINT8(4);
+        if (MPEG2.TS_PACKET_HEADER_SIZE + length > encoding.size())
+            return false;
+        encoding.readSelector(4, length, target);
+        return true;
+    }
+
+    /**
+     * 读取负载，不抛出异常。
+     *
+     * @param target 接收结果的享元对象
+     * @return 不含负载或适配字段长度越界（负载为空）时返回false
+     */
+    public boolean tryGetPayload(Encoding target)
+    {
+        int start = tryGetPayloadStartPosition();
+        if (start < 0)
+            return false;
+        encoding.readSelector(start, encoding.size() - start, target);
+        return true;
+    }
+
     ////////////////////////////////////////////////////////////////////
 
     public static final byte[] PACKET_MASK_IGNORE_PCR =
@@ -262,49 +328,55 @@ public class TransportPacketDecoder extends Decoder
         (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF
     };
 
-//    /**
-//     * 判断同一传输流下的两个连续传输包是否重复。
-//     *
-//     * <p>ISO.13818-1中对“重复包”的定义为：
-//     * <p>（1）同一传输流（PID相同）中的（2）连续的（3）两个传输包，它们具有（4）相同的CCT值，
-//     * 且（5）适配域控制字段值为'01'或'11'，（6）如果含有适配域，且适配域中包含PCR，则除了
-//     * PCR，重复包中的所有其他内容必须与原始包完全一致；(7)如果不含适配域，或者适配域中
-//     * 不含PCR，则重复包的所有内容必须与原始包完全一致。
-//     * <p>另外，以上约束仅对非空包且无传输错误的包有效。
-//     * <p>对于空包，或transport_error_indicator值为'1'的非空包，其连续包之间的重复性不可判断。
-//     *
-//     * @param packet1 前一个传输包
-//     * @param packet2 后一个传输包
-//     * @return 后一个包是否为前一个包的重复包。
-//     */
-//    public static boolean isDuplicate(byte[] packet1, byte[] packet2)
-//    {
-//        if (TransportPacket.getTransportErrorIndicator(packet1) == 1 ||
-//            TransportPacket.getTransportErrorIndicator(packet2) == 1)
-//            return false;
-//
-//        int pid1 = TransportPacket.getPID(packet1);
-//        int pid2 = TransportPacket.getPID(packet2);
-//        if (pid1 == MPEG2.NULL_PACKET_PID ||
-//            pid2 == MPEG2.NULL_PACKET_PID ||
-//            pid2 != pid1)
-//            return false;
-//
-//        int cct1 = TransportPacket.getCCT(packet1);
-//        int cct2 = TransportPacket.getCCT(packet2);
-//        if (cct2 != cct1)
-//            return false;
-//
-//        int afc1 = TransportPacket.getAdaptationFieldControl(packet1);
-//        int afc2 = TransportPacket.getAdaptationFieldControl(packet2);
-//        if (afc1 == 0b00 || afc1 == 0b10 ||     // 保留字段或者无负载时，CCT不变化，不存在重复性。
-//            afc2 == 0b00 || afc2 == 0b10 ||     // 同上
-//            afc1 != afc2)                       // 适配域属性不一致，必然不重复。
-//            return false;
-//
-//        AdaptationField af2 = getAdaptationField(packet2);
-//        return (afc2 == 0x01 || af2.getProgramClockReferenceFlag() == 0)
-//            ? Arrays.equals(packet1, packet2)   // 无适配域或适配域中不含PCR
-//            : bytes_equals_with_mask(packet1, packet2, PACKET_MASK_IGNORE_PCR); // 忽略PCR字段进行比较
-//    }
-}
\ No newline at end of file
+    /**
+     * 判断同一传输流下的两个连续传输包是否重复。
+     *
+     * <p>ISO.13818-1中对“重复包”的定义为：
+     * <p>（1）同一传输流（PID相同）中的（2）连续的（3）两个传输包，它们具有（4）相同的CCT值，
+     * 且（5）适配域控制字段值为'01'或'11'，（6）如果含有适配域，且适配域中包含PCR，则除了
+     * PCR，重复包中的所有其他内容必须与原始包完全一致；(7)如果不含适配域，或者适配域中
+     * 不含PCR，则重复包的所有内容必须与原始包完全一致。
+     * <p>另外，以上约束仅对非空包且无传输错误的包有效。
+     * <p>对于空包，或transport_error_indicator值为'1'的非空包，其连续包之间的重复性不可判断。
+     * <p>流式检查（不保留前一个包）见 {@link m2tk.mpeg2.analyzer.ContinuityAnalyzer}。
+     *
+     * @param buffer1 前一个传输包所在的缓冲区
+     * @param offset1 前一个传输包的起始位置
+     * @param buffer2 后一个传输包所在的缓冲区
+     * @param offset2 后一个传输包的起始位置
+     * @return 后一个包是否为前一个包的重复包。
+     */
+    public static boolean isDuplicate(byte[] buffer1, int offset1, byte[] buffer2, int offset2)
+    {
+        if (TransportPackets.tei(buffer1, offset1) == 1 ||
+            TransportPackets.tei(buffer2, offset2) == 1)
+            return false;
+
+        int pid1 = TransportPackets.pid(buffer1, offset1);
+        int pid2 = TransportPackets.pid(buffer2, offset2);
+        if (pid1 == MPEG2.NULL_PACKET_PID ||
+            pid2 == MPEG2.NULL_PACKET_PID ||
+            pid2 != pid1)
+            return false;
+
+        if (TransportPackets.cc(buffer1, offset1) != TransportPackets.cc(buffer2, offset2))
+            return false;
+
+        int afc1 = TransportPackets.afc(buffer1, offset1);
+        int afc2 = TransportPackets.afc(buffer2, offset2);
+        if (afc1 == 0b00 || afc1 == 0b10 ||     // 保留字段或者无负载时，CCT不变化，不存在重复性。
+            afc2 == 0b00 || afc2 == 0b10 ||     // 同上
+            afc1 != afc2)                       // 适配域属性不一致，必然不重复。
+            return false;
+
+        return TransportPackets.hasPCR(buffer2, offset2)
+               ? Bytes.equalsWithMask(buffer1, offset1, buffer2, offset2,
+                                      PACKET_MASK_IGNORE_PCR, 0, MPEG2.TS_PACKET_SIZE) // 忽略PCR字段进行比较
+               : Bytes.equals(buffer1, offset1, buffer2, offset2, MPEG2.TS_PACKET_SIZE);
+    }
+
+    public static boolean isDuplicate(byte[] packet1, byte[] packet2)
+    {
+        return isDuplicate(packet1, 0, packet2, 0);
+    }
+}
@@ -18,6 +18,7 @@ package m2tk.mpeg2.decoder.element;
 
 import m2tk.encoding.Decoder;
 import m2tk.encoding.Encoding;
+import m2tk.mpeg2.ProgramClockReference;
 
 public class AdaptationFieldDecoder extends Decoder
 {
@@ -92,6 +93,12 @@ public class AdaptationFieldDecoder extends Decoder
         return encoding.readSelector(2, 6);
     }
 
+    public Encoding getProgramClockReference(Encoding target)
+    {
+        checkFlag(getProgramClockReferenceFlag());
+        return encoding.readSelector(2, 6, target);
+    }
+
     public Encoding getOriginalProgramClockReference()
     {
         checkFlag(getOriginalProgramClockReferenceFlag());
@@ -150,6 +157,128 @@ public class AdaptationFieldDecoder extends Decoder
         return encoding.readSelector(position + 1, encoding.readUINT8(position));
     }
 
+    // 以下 tryXXX 方法不抛出异常：字段不存在或长度越界时返回 false 或 -1，适用于误码率高的码流。
+
+    /**
+     * @return PCR值（27MHz时钟单位）；不含PCR或适配字段长度不足时返回-1
+     */
+    public long tryGetProgramClockReferenceValue()
+    {
+        return readClockReference(fieldPosition(0x10));
+    }
+
+    /**
+     * @return OPCR值（27MHz时钟单位）；不含OPCR或适配字段长度不足时返回-1
+     */
+    public long tryGetOriginalProgramClockReferenceValue()
+    {
+        return readClockReference(fieldPosition(0x08));
+    }
+
+    public boolean tryGetProgramClockReference(Encoding target)
+    {
+        int position = fieldPosition(0x10);
+        if (position < 0 || position + 6 > limit())
+            return false;
+        encoding.readSelector(position, 6, target);
+        return true;
+    }
+
+    /**
+     * @return splice_countdown；不存在或适配字段长度不足时返回-1
+     */
+    public int tryGetSpliceCountdown()
+    {
+        int position = fieldPosition(0x04);
+        return (position < 0 || position + 1 > limit()) ? -1 : encoding.readUINT8(position);
+    }
+
+    /**
+     * 读取 transport_private_data（不含length字段）。
+     *
+     * @return 不存在或长度越界时返回false
+     */
+    public boolean tryGetTransportPrivateData(Encoding target)
+    {
+        return readLengthPrefixed(fieldPosition(0x02), target);
+    }
+
+    /**
+     * 读取 adaptation_field_extension（不含length字段）。
+     *
+     * @return 不存在或长度越界时返回false
+     */
+    public boolean tryGetAdaptationFieldExtension(Encoding target)
+    {
+        return readLengthPrefixed(fieldPosition(0x01), target);
+    }
+
+    /**
+     * 计算可选字段的位置，标志未置位或前面的字段越界时返回-1。
+     */
+    private int fieldPosition(int flag)
+    {
+        int limit = limit();
+        if (limit < 2)
+            return -1;
+        int flags = encoding.readUINT8(1);
+        if ((flags & flag) == 0)
+            return -1;
+
+        int position = 2;
+        if (flag == 0x10)
+            return position;
+        if ((flags & 0x10) != 0)
+            position += 6;
+        if (flag == 0x08)
+            return position;
+        if ((flags & 0x08) != 0)
+            position += 6;
+        if (flag == 0x04)
+            return position;
+        if ((flags & 0x04) != 0)
+            position += 1;
+        if (flag == 0x02)
+            return position;
+        if ((flags & 0x02) != 0)
+        {
+            if (position >= limit)
+                return -1;
+            position += 1 + encoding.readUINT8(position);
+        }
+        return position;
+    }
+
+    /**
+     * 有效范围：length字段给出的长度与编码实际长度中的较小者。
+     */
+    private int limit()
+    {
+        int size = encoding.size();
+        return (size == 0) ? 0 : Math.min(size, 1 + encoding.readUINT8(0));
+    }
+
+    private long readClockReference(int position)
+    {
+        if (position < 0 || position + 6 > limit())
+            return -1;
+        long base = encoding.readUINT40(position) >> 7;
+        long extension = encoding.readUINT16(position + 4) & 0x1FF;
+        return ProgramClockReference.value(base, extension);
+    }
+
+    private boolean readLengthPrefixed(int position, Encoding target)
+    {
+        int limit = limit();
+        if (position < 0 || position >= limit)
+            return false;
+        int length = encoding.readUINT8(position);
+        if (position + 1 + length > limit)
+            return false;
+        encoding.readSelector(position + 1, length, target);
+        return true;
+    }
+
     private void checkNotEmpty()
     {
         if (isEmpty())
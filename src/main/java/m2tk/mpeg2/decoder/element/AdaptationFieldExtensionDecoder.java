@@ -96,6 +96,52 @@ public class AdaptationFieldExtensionDecoder extends Decoder
         return encoding.readBits(position, 0x0EFFFEFFFEL);
     }
 
+    // 以下 tryXXX 方法不抛出异常：字段不存在或长度越界时返回-1，适用于误码率高的码流。
+
+    public int tryGetLegalTimeWindowOffset()
+    {
+        int position = fieldPosition(0x80, 2);
+        return (position < 0) ? -1 : encoding.readUINT16(position) & 0x7FFF;
+    }
+
+    public int tryGetPiecewiseRate()
+    {
+        int position = fieldPosition(0x40, 3);
+        return (position < 0) ? -1 : encoding.readUINT24(position) & 0x3FFFFF;
+    }
+
+    public int tryGetSpliceType()
+    {
+        int position = fieldPosition(0x20, 5);
+        return (position < 0) ? -1 : encoding.readUINT8(position) >> 4;
+    }
+
+    public long tryGetDecodingTimeStampNextAccessUnit()
+    {
+        int position = fieldPosition(0x20, 5);
+        return (position < 0) ? -1 : encoding.readBits(position, 0x0EFFFEFFFEL);
+    }
+
+    /**
+     * 计算可选字段的位置，标志未置位或字段超出编码范围时返回-1。
+     */
+    private int fieldPosition(int flag, int length)
+    {
+        int size = encoding.size();
+        if (size == 0)
+            return -1;
+        int flags = encoding.readUINT8(0);
+        if ((flags & flag) == 0)
+            return -1;
+
+        int position = 1;
+        if (flag != 0x80 && (flags & 0x80) != 0)
+            position += 2;
+        if (flag == 0x20 && (flags & 0x40) != 0)
+            position += 3;
+        return (position + length <= size) ? position : -1;
+    }
+
     private void checkFlag(int flag)
     {
         if (flag == 0)
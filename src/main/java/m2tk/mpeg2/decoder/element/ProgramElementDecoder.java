@@ -41,4 +41,9 @@ public class ProgramElementDecoder extends Decoder
     {
         return encoding.readSelector(5);
     }
+
+    public Encoding getDescriptorLoop(Encoding target)
+    {
+        return encoding.readSelector(5, encoding.size() - 5, target);
+    }
 }
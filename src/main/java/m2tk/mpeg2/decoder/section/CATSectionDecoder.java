@@ -36,4 +36,9 @@ public class CATSectionDecoder extends PSISectionDecoder
     {
         return encoding.readSelector(8, encoding.size() - 12);
     }
+
+    public Encoding getDescriptorLoop(Encoding target)
+    {
+        return encoding.readSelector(8, encoding.size() - 12, target);
+    }
 }
@@ -54,6 +54,12 @@ public class PMTSectionDecoder extends PSISectionDecoder
         return encoding.readSelector(12, length);
     }
 
+    public Encoding getDescriptorLoop(Encoding target)
+    {
+        int length = encoding.readUINT16(10) & 0xFFF;
+        return encoding.readSelector(12, length, target);
+    }
+
     public Encoding[] getProgramElementList()
     {
         ArrayList<Encoding> list = new ArrayList<>();
@@ -81,4 +87,19 @@ public class PMTSectionDecoder extends PSISectionDecoder
             from += length;
         }
     }
+
+    public void forEachProgramElement(Encoding cursor, Consumer<Encoding> consumer)
+    {
+        Objects.requireNonNull(cursor);
+        Objects.requireNonNull(consumer);
+        int from = 12 + (encoding.readUINT16(10) & 0xFFF);
+        int to   = encoding.size() - MPEG2.CHECKSUM_LENGTH;
+        while (from < to)
+        {
+            int length = 5 + (encoding.readUINT16(from + 3) & 0xFFF);
+            Encoding element = encoding.readSelector(from, length, cursor);
+            consumer.accept(element);
+            from += length;
+        }
+    }
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.mpeg2.demux;
+
+import m2tk.io.PacketConsumer;
+import m2tk.mpeg2.MPEG2;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 按PID分发传输包的解复用器。<p>
+ * 分发表是一个 8192 项的平坦数组（以PID为下标），各PID的状态（连续计数器、包计数等）保存在基本类型数组中，
+ * 分发过程不创建任何对象。处理器可以在流运行期间随时注册或注销（可以在其他线程，也可以在处理器回调内）。
+ * <p>
+ * 包头字段的含义与 {@link m2tk.mpeg2.decoder.TransportPacketDecoder} 一致：
+ * 连续计数器只在含有负载的包（adaptation_field_control 为 '01' 或 '11'）中递增；
+ * 与前一包相同的计数值视为重复包；适配字段中的 discontinuity_indicator 置位时不判定计数错误。
+ * <p>
+ * 解复用器本身不是线程安全的，同一时刻只能由一个线程输入数据。
+ */
+public final class PIDDemultiplexer implements PacketConsumer
+{
+    public static final int STATUS_PAYLOAD_UNIT_START = 0x01;
+    public static final int STATUS_TRANSPORT_ERROR = 0x02;
+    public static final int STATUS_SCRAMBLED = 0x04;
+    public static final int STATUS_DISCONTINUITY_INDICATED = 0x08;
+    public static final int STATUS_CC_ERROR = 0x10;
+    public static final int STATUS_DUPLICATE = 0x20;
+
+    private static final int PID_COUNT = MPEG2.MAX_PID + 1;
+    private static final int DUPLICATED = 0x10;
+
+    private final AtomicReferenceArray<PacketHandler> handlers;
+    private final byte[] lastCC;
+    private final long[] packetCounts;
+    private final long[] ccErrorCounts;
+    private long totalPacketCount;
+
+    public PIDDemultiplexer()
+    {
+        handlers = new AtomicReferenceArray<>(PID_COUNT);
+        lastCC = new byte[PID_COUNT];
+        packetCounts = new long[PID_COUNT];
+        ccErrorCounts = new long[PID_COUNT];
+        reset();
+    }
+
+    public void register(int pid, PacketHandler handler)
+    {
+        checkPID(pid);
+        handlers.set(pid, Objects.requireNonNull(handler));
+    }
+
+    public void unregister(int pid)
+    {
+        checkPID(pid);
+        handlers.set(pid, null);
+    }
+
+    public boolean isRegistered(int pid)
+    {
+        checkPID(pid);
+        return handlers.get(pid) != null;
+    }
+
+    /**
+     * 清除各PID的连续计数器状态与统计数据，已注册的处理器保持不变。
+     */
+    public void reset()
+    {
+        for (int i = 0; i < PID_COUNT; i++)
+        {
+            lastCC[i] = -1;
+            packetCounts[i] = 0;
+            ccErrorCounts[i] = 0;
+        }
+        totalPacketCount = 0;
+    }
+
+    public long getPacketCount()
+    {
+        return totalPacketCount;
+    }
+
+    public long getPacketCount(int pid)
+    {
+        checkPID(pid);
+        return packetCounts[pid];
+    }
+
+    public long getContinuityErrorCount(int pid)
+    {
+        checkPID(pid);
+        return ccErrorCounts[pid];
+    }
+
+    @Override
+    public void accept(byte[] buffer, int offset)
+    {
+        int b1 = buffer[offset + 1] & 0xFF;
+        int b3 = buffer[offset + 3] & 0xFF;
+        int pid = ((b1 << 8) | (buffer[offset + 2] & 0xFF)) & MPEG2.PID_MASK;
+        int afc = (b3 >> 4) & 0b11;
+        int cc = b3 & 0b1111;
+
+        int status = 0;
+        if ((b1 & 0x80) != 0)
+            status |= STATUS_TRANSPORT_ERROR;
+        if ((b1 & 0x40) != 0)
+            status |= STATUS_PAYLOAD_UNIT_START;
+        if ((b3 & 0xC0) != 0)
+            status |= STATUS_SCRAMBLED;
+
+        int payloadStart;
+        switch (afc)
+        {
+            case 0b01:
+                payloadStart = MPEG2.TS_PACKET_HEADER_SIZE;
+                break;
+            case 0b11:
+            {
+                int length = buffer[offset + 4] & 0xFF;
+                if (length > 0 && (buffer[offset + 5] & 0x80) != 0)
+                    status |= STATUS_DISCONTINUITY_INDICATED;
+                // 含负载时适配字段最长182字节，超过即为长度错误，负载不可用。
+                payloadStart = (length <= 182) ? MPEG2.TS_PACKET_HEADER_SIZE + 1 + length : -1;
+                break;
+            }
+            case 0b10:
+            {
+                int length = buffer[offset + 4] & 0xFF;
+                if (length > 0 && (buffer[offset + 5] & 0x80) != 0)
+                    status |= STATUS_DISCONTINUITY_INDICATED;
+                payloadStart = -1;
+                break;
+            }
+            default:
+                payloadStart = -1;
+                break;
+        }
+
+        // 空包与带传输错误的包不参与连续性判断
+        if (pid != MPEG2.NULL_PACKET_PID && (status & STATUS_TRANSPORT_ERROR) == 0)
+            status |= checkContinuity(pid, afc, cc, status);
+
+        totalPacketCount++;
+        packetCounts[pid]++;
+
+        PacketHandler handler = handlers.get(pid);
+        if (handler != null)
+            handler.handle(buffer, offset, pid, payloadStart, status);
+    }
+
+    private int checkContinuity(int pid, int afc, int cc, int status)
+    {
+        // lastCC: 低4位为上一个计数值，DUPLICATED位表示上一个包已是重复包，-1表示尚无记录。
+        int state = lastCC[pid];
+        boolean hasPayload = (afc & 0b01) != 0;
+        int result = 0;
+        int next = cc;
+
+        if (state >= 0 && (status & STATUS_DISCONTINUITY_INDICATED) == 0)
+        {
+            int last = state & 0b1111;
+            int expected = hasPayload ? ((last + 1) & 0b1111) : last;
+            if (cc != expected)
+            {
+                // 重复包最多只能出现一次
+                if (hasPayload && cc == last && (state & DUPLICATED) == 0)
+                {
+                    result = STATUS_DUPLICATE;
+                    next = cc | DUPLICATED;
+                } else
+                {
+                    result = STATUS_CC_ERROR;
+                    ccErrorCounts[pid]++;
+                }
+            }
+        }
+
+        lastCC[pid] = (byte) next;
+        return result;
+    }
+
+    private static void checkPID(int pid)
+    {
+        if (pid < MPEG2.MIN_PID || pid > MPEG2.MAX_PID)
+            throw new IllegalArgumentException("invalid pid: " + pid);
+    }
+}
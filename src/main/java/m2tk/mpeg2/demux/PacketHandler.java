@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.mpeg2.demux;
+
+@FunctionalInterface
+public interface PacketHandler
+{
+    /**
+     * Handles a demultiplexed transport packet in place.
+     * The buffer is only valid during the call.
+     *
+     * @param buffer       buffer holding the packet
+     * @param offset       position of the sync byte
+     * @param pid          packet PID
+     * @param payloadStart payload position relative to offset, or -1 if the packet carries no (valid) payload
+     * @param status       status bits, see {@code PIDDemultiplexer.STATUS_*}
+     */
+    void handle(byte[] buffer, int offset, int pid, int payloadStart, int status);
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.mpeg2.demux;
+
+import m2tk.mpeg2.MPEG2;
+import m2tk.util.CRC32;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 从传输包负载中重组PSI/SI段（Section）的增量组装器。<p>
+ * 处理 pointer_field、跨越多个传输包的段、同一传输包中连续排列的多个段以及段后的填充字节（0xFF）。
+ * 组装完成的段通过 {@link SectionHandler} 输出，可直接用 Encoding 包装后交给
+ * {@link m2tk.mpeg2.decoder.SectionDecoder} 等段解码器处理。
+ * <p>
+ * 组装器作为 {@link PacketHandler} 注册到 {@link PIDDemultiplexer} 上，可以同时服务多个PID。
+ * 每个PID在第一次使用时分配一个 {@link MPEG2#MAX_PRIVATE_SECTION_LENGTH} 字节的缓冲区，之后一直复用，
+ * 因此稳定运行后不再分配任何对象。遇到连续计数错误或传输错误时，丢弃未完成的段；
+ * 连续计数错误的包若带有 payload_unit_start_indicator，从 pointer_field 处开始的新段照常组装，传输错误的包则整包丢弃。
+ * <p>
+ * 段的CRC32在数据到达时随之计算，段组装完成时校验结果同时就绪，无需再遍历一遍。
+ */
+public final class SectionAssembler implements PacketHandler
+{
+    private static final int PID_COUNT = MPEG2.MAX_PID + 1;
+    private static final int UNKNOWN = -1;
+    private static final int IDLE = -2;
+
+    private final SectionHandler handler;
+    private final byte[][] buffers;
+    private final int[] filled;
+    private final int[] expected; // IDLE：无进行中的段；UNKNOWN：段头尚未收齐；其他：段总长度
+    private final long[] checksums;
+
+    private long sectionCount;
+    private long discardCount;
+
+    public SectionAssembler(SectionHandler handler)
+    {
+        this.handler = Objects.requireNonNull(handler);
+        this.buffers = new byte[PID_COUNT][];
+        this.filled = new int[PID_COUNT];
+        this.expected = new int[PID_COUNT];
+        this.checksums = new long[PID_COUNT];
+        Arrays.fill(expected, IDLE);
+    }
+
+    public long getSectionCount()
+    {
+        return sectionCount;
+    }
+
+    public long getDiscardCount()
+    {
+        return discardCount;
+    }
+
+    /**
+     * 丢弃指定PID上未完成的段。
+     *
+     * @param pid PID
+     */
+    public void reset(int pid)
+    {
+        expected[pid] = IDLE;
+        filled[pid] = 0;
+    }
+
+    @Override
+    public void handle(byte[] buffer, int offset, int pid, int payloadStart, int status)
+    {
+        if ((status & PIDDemultiplexer.STATUS_TRANSPORT_ERROR) != 0)
+        {
+            discard(pid);
+            return;
+        }
+        if ((status & PIDDemultiplexer.STATUS_CC_ERROR) != 0)
+        {
+            // 丢包只影响未完成的段；本包若有 pointer_field，其后开始的新段仍然完整
+            discard(pid);
+            if ((status & PIDDemultiplexer.STATUS_PAYLOAD_UNIT_START) == 0)
+                return;
+        }
+        if ((status & (PIDDemultiplexer.STATUS_DUPLICATE | PIDDemultiplexer.STATUS_SCRAMBLED)) != 0 ||
+            payloadStart < 0)
+            return;
+
+        int from = offset + payloadStart;
+        int to = offset + MPEG2.TS_PACKET_SIZE;
+
+        if ((status & PIDDemultiplexer.STATUS_PAYLOAD_UNIT_START) == 0)
+        {
+            if (expected[pid] != IDLE)
+                append(pid, buffer, from, to, false);
+            return;
+        }
+
+        int pointer = buffer[from] & 0xFF;
+        from += 1;
+        if (from + pointer > to)
+        {
+            discard(pid); // pointer_field越界
+            return;
+        }
+
+        // pointer_field之前的数据属于上一个段的结尾
+        if (pointer > 0 && expected[pid] != IDLE)
+            append(pid, buffer, from, from + pointer, false);
+        if (expected[pid] != IDLE)
+            discard(pid);
+
+        append(pid, buffer, from + pointer, to, true);
+    }
+
+    /**
+     * @param mayStart 是否允许在此区间内开始新的段（仅在 pointer_field 指向的位置之后成立）。
+     */
+    private void append(int pid, byte[] data, int from, int to, boolean mayStart)
+    {
+        while (from < to)
+        {
+            int total = expected[pid];
+            if (total == IDLE)
+            {
+                if (!mayStart || (data[from] & 0xFF) == MPEG2.TS_STUFFING_BYTE)
+                    return; // 余下均为填充字节
+                if (buffers[pid] == null)
+                    buffers[pid] = new byte[MPEG2.MAX_PRIVATE_SECTION_LENGTH];
+                expected[pid] = total = UNKNOWN;
+                filled[pid] = 0;
+                checksums[pid] = CRC32.INITIAL_VALUE;
+            }
+
+            byte[] section = buffers[pid];
+            int count = filled[pid];
+            int need = (total == UNKNOWN)
+                       ? MPEG2.SECTION_HEADER_LENGTH - count
+                       : total - count;
+            int n = Math.min(need, to - from);
+            System.arraycopy(data, from, section, count, n);
+            checksums[pid] = CRC32.update(checksums[pid], data, from, n);
+            from += n;
+            count += n;
+            filled[pid] = count;
+
+            if (total == UNKNOWN)
+            {
+                if (count < MPEG2.SECTION_HEADER_LENGTH)
+                    return;
+                total = MPEG2.SECTION_HEADER_LENGTH + (((section[1] & 0x0F) << 8) | (section[2] & 0xFF));
+                if (total > MPEG2.MAX_PRIVATE_SECTION_LENGTH)
+                {
+                    discard(pid);
+                    return;
+                }
+                expected[pid] = total;
+            }
+
+            if (count == total)
+            {
+                expected[pid] = IDLE;
+                filled[pid] = 0;
+                sectionCount++;
+                handler.handle(pid, section, total, checksums[pid]);
+            }
+        }
+    }
+
+    private void discard(int pid)
+    {
+        if (expected[pid] != IDLE)
+        {
+            discardCount++;
+            expected[pid] = IDLE;
+            filled[pid] = 0;
+        }
+    }
+}
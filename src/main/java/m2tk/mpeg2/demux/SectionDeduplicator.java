@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.mpeg2.demux;
+
+import m2tk.mpeg2.MPEG2;
+import m2tk.mpeg2.decoder.ExtendedSectionDecoder;
+import m2tk.util.BigEndian;
+import m2tk.util.LongLongHashMap;
+
+import java.util.Objects;
+
+/**
+ * 按版本号过滤重复段的过滤器。<p>
+ * PAT、PMT、SDT、NIT等表以固定周期重复播出，内容通常不变。过滤器以
+ * PID、table_id、table_id_extension、section_number 和 current_next_indicator 为键，
+ * 记录每个段最近一次出现的 version_number（可选再加上 CRC_32），相同则判定为重复，
+ * 在解析描述符之前即可丢弃。记录保存在以long为键的基本类型哈希表中，查找过程不创建对象。
+ * <p>
+ * 只对长格式段（section_syntax_indicator = 1）去重，短格式段（如TDT、TOT）总是放行。
+ * 作为 {@link SectionHandler} 使用时，只记录CRC校验正确的段，避免一个损坏的段把之后正确的段都屏蔽掉。
+ */
+public final class SectionDeduplicator implements SectionHandler
+{
+    private static final long ABSENT = -1L;
+
+    private final SectionHandler downstream;
+    private final boolean compareChecksum;
+    private final LongLongHashMap records;
+
+    private long passedCount;
+    private long droppedCount;
+
+    /**
+     * 创建独立使用的过滤器（通过 isRepeated 方法判断）。
+     *
+     * @param compareChecksum 是否同时比较CRC_32（版本号未变但内容变化时也能识别）
+     */
+    public SectionDeduplicator(boolean compareChecksum)
+    {
+        this(null, compareChecksum);
+    }
+
+    /**
+     * 创建串接在段组装器之后的过滤器，非重复的段转交给下游处理器。
+     *
+     * @param downstream      下游段处理器
+     * @param compareChecksum 是否同时比较CRC_32
+     */
+    public SectionDeduplicator(SectionHandler downstream, boolean compareChecksum)
+    {
+        this.downstream = downstream;
+        this.compareChecksum = compareChecksum;
+        this.records = new LongLongHashMap(256);
+    }
+
+    public long getPassedCount()
+    {
+        return passedCount;
+    }
+
+    public long getDroppedCount()
+    {
+        return droppedCount;
+    }
+
+    public void clear()
+    {
+        records.clear();
+    }
+
+    @Override
+    public void handle(int pid, byte[] section, int length, long checksum)
+    {
+        Objects.requireNonNull(downstream, "no downstream handler");
+
+        if (isLongForm(section, length))
+        {
+            long key = key(pid, section);
+            long value = value(section, length);
+            if (records.get(key, ABSENT) == value)
+            {
+                droppedCount++;
+                return;
+            }
+            if (checksum == 0)
+                records.put(key, value, ABSENT);
+        }
+
+        passedCount++;
+        downstream.handle(pid, section, length, checksum);
+    }
+
+    /**
+     * 判断段是否与之前记录的同一段重复，不重复时记录新版本。
+     *
+     * @param pid     承载段的PID
+     * @param section 段数据（从下标0开始）
+     * @param length  段长度
+     * @return 是否重复
+     */
+    public boolean isRepeated(int pid, byte[] section, int length)
+    {
+        if (!isLongForm(section, length))
+            return false;
+
+        long value = value(section, length);
+        boolean repeated = records.put(key(pid, section), value, ABSENT) == value;
+        if (repeated)
+            droppedCount++;
+        else
+            passedCount++;
+        return repeated;
+    }
+
+    /**
+     * 判断解码器当前关联的段是否与之前记录的同一段重复，不重复时记录新版本。
+     *
+     * @param pid     承载段的PID
+     * @param decoder 已关联段数据的解码器
+     * @return 是否重复
+     */
+    public boolean isRepeated(int pid, ExtendedSectionDecoder decoder)
+    {
+        long key = key(pid,
+                       decoder.getTableID(),
+                       decoder.getTableIDExtension(),
+                       decoder.getSectionNumber(),
+                       decoder.getCurrentNextIndicator());
+        long value = value(decoder.getVersionNumber(), compareChecksum ? decoder.getChecksum() : 0);
+        boolean repeated = records.put(key, value, ABSENT) == value;
+        if (repeated)
+            droppedCount++;
+        else
+            passedCount++;
+        return repeated;
+    }
+
+    private static boolean isLongForm(byte[] section, int length)
+    {
+        return length >= MPEG2.MIN_PSI_SECTION_LENGTH && (section[1] & 0x80) != 0;
+    }
+
+    private static long key(int pid, byte[] section)
+    {
+        return key(pid,
+                   section[0] & 0xFF,
+                   BigEndian.getUINT16(section, 3),
+                   section[6] & 0xFF,
+                   section[5] & 0b1);
+    }
+
+    private static long key(int pid, int tableId, int extension, int sectionNumber, int currentNext)
+    {
+        return ((long) (pid & MPEG2.PID_MASK) << 33) |
+               ((long) currentNext << 32) |
+               ((long) tableId << 24) |
+               ((long) extension << 8) |
+               sectionNumber;
+    }
+
+    private long value(byte[] section, int length)
+    {
+        int version = (section[5] >> 1) & 0b11111;
+        long crc = compareChecksum ? BigEndian.getUINT32(section, length - MPEG2.CHECKSUM_LENGTH) : 0;
+        return value(version, crc);
+    }
+
+    private static long value(int version, long crc)
+    {
+        return ((long) version << 32) | crc;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.mpeg2.demux;
+
+@FunctionalInterface
+public interface SectionHandler
+{
+    /**
+     * Handles a completely assembled section.
+     * The buffer is reused by the assembler and is only valid during the call.
+     *
+     * @param pid      PID that carried the section
+     * @param section  buffer holding the section, starting at index 0
+     * @param length   section length, including the 3-byte section header
+     * @param checksum CRC32 of the whole section, computed while it was assembled
+     *                 (same as {@code Encoding.checksum()}; 0 means a correct CRC_32 field)
+     */
+    void handle(int pid, byte[] section, int length, long checksum);
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.mpeg2.demux;
+
+public interface TableListener
+{
+    /**
+     * Called exactly once when all sections of a sub-table version have arrived.
+     * The section buffer is only valid during the call.
+     *
+     * @param pid     PID that carried the sub-table
+     * @param section the section that completed the sub-table, starting at index 0
+     * @param length  section length
+     */
+    void tableCompleted(int pid, byte[] section, int length);
+
+    /**
+     * Called exactly once when a sub-table changes to a new version_number.
+     * The section buffer is only valid during the call.
+     *
+     * @param pid             PID that carried the sub-table
+     * @param section         the first section of the new version, starting at index 0
+     * @param length          section length
+     * @param previousVersion version_number of the replaced version
+     */
+    default void tableVersionChanged(int pid, byte[] section, int length, int previousVersion)
+    {
+    }
+}
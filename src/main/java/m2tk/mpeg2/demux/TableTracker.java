@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.mpeg2.demux;
+
+import m2tk.mpeg2.MPEG2;
+import m2tk.util.BigEndian;
+import m2tk.util.LongLongHashMap;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 子表完整性跟踪器。<p>
+ * 子表由 PID、table_id 与 table_id_extension 确定（EIT 另加 transport_stream_id 与 original_network_id）。
+ * 每个子表用一个 256 位的位图记录已收到的 section_number，
+ * 当 0 ~ last_section_number 的所有段都已到达时回调一次 {@link TableListener#tableCompleted}；
+ * version_number 变化时清空位图并回调一次 {@link TableListener#tableVersionChanged}。
+ * 对 EIT，按 segment_last_section_number 把每个分段中未使用的段号视为已到达。
+ * <p>
+ * 位图、版本号等状态都保存在按槽位排列的基本类型数组中，子表到槽位的映射使用
+ * {@link LongLongHashMap}，稳定运行后不再分配任何对象。只跟踪当前有效（current_next_indicator = 1）的长格式段。
+ * 不是线程安全的。
+ */
+public final class TableTracker implements SectionHandler
+{
+    private static final int WORDS = 4; // 256位
+    private static final long ABSENT = -1L;
+    private static final int EIT_HEADER_LENGTH = 14;
+
+    private final TableListener listener;
+    private final LongLongHashMap slots;
+    private long[] bitmaps;
+    private int[] versions;
+    private int[] lastSections;
+    private boolean[] completed;
+    private int slotCount;
+
+    private long completionCount;
+    private long versionChangeCount;
+
+    public TableTracker(TableListener listener)
+    {
+        this.listener = Objects.requireNonNull(listener);
+        this.slots = new LongLongHashMap(64);
+        allocate(64);
+    }
+
+    public int getTableCount()
+    {
+        return slotCount;
+    }
+
+    public long getCompletionCount()
+    {
+        return completionCount;
+    }
+
+    public long getVersionChangeCount()
+    {
+        return versionChangeCount;
+    }
+
+    /**
+     * 清除所有子表的跟踪状态。
+     */
+    public void reset()
+    {
+        slots.clear();
+        slotCount = 0;
+    }
+
+    @Override
+    public void handle(int pid, byte[] section, int length, long checksum)
+    {
+        if (checksum == 0)
+            update(pid, section, length);
+    }
+
+    /**
+     * 记录一个段。调用者应保证段的CRC校验正确。
+     *
+     * @param pid     承载段的PID
+     * @param section 段数据（从下标0开始）
+     * @param length  段长度
+     * @return 该段是否使子表变为完整
+     */
+    public boolean update(int pid, byte[] section, int length)
+    {
+        if (length < MPEG2.MIN_PSI_SECTION_LENGTH ||
+            (section[1] & 0x80) == 0 ||
+            (section[5] & 0b1) == 0)
+            return false;
+
+        int tableId = section[0] & 0xFF;
+        boolean eit = isEIT(tableId);
+        if (eit && length < EIT_HEADER_LENGTH + MPEG2.CHECKSUM_LENGTH)
+            return false;
+
+        int version = (section[5] >> 1) & 0b11111;
+        int sectionNumber = section[6] & 0xFF;
+        int lastSection = section[7] & 0xFF;
+        if (sectionNumber > lastSection)
+            return false;
+
+        // 键：table_id | table_id_extension | (EIT ? transport_stream_id + original_network_id : PID)
+        long key = ((long) tableId << 48) |
+                   ((long) BigEndian.getUINT16(section, 3) << 32) |
+                   (eit ? BigEndian.getUINT32(section, 8) : pid);
+
+        int slot = (int) slots.get(key, ABSENT);
+        if (slot < 0)
+        {
+            slot = newSlot();
+            slots.put(key, slot, ABSENT);
+            versions[slot] = version;
+            lastSections[slot] = lastSection;
+        } else if (versions[slot] != version)
+        {
+            int previous = versions[slot];
+            clearSlot(slot);
+            versions[slot] = version;
+            lastSections[slot] = lastSection;
+            versionChangeCount++;
+            listener.tableVersionChanged(pid, section, length, previous);
+        } else if (lastSections[slot] != lastSection)
+        {
+            // 同一版本的 last_section_number 不一致，视为新的开始
+            clearSlot(slot);
+            lastSections[slot] = lastSection;
+        }
+
+        if (completed[slot])
+            return false;
+
+        int base = slot * WORDS;
+        mark(base, sectionNumber, sectionNumber);
+        if (eit)
+        {
+            int segmentLast = section[12] & 0xFF;
+            int segmentEnd = Math.min(sectionNumber | 0b111, lastSection);
+            if (segmentLast >= sectionNumber && segmentLast < segmentEnd)
+                mark(base, segmentLast + 1, segmentEnd);
+        }
+
+        if (!isFull(base, lastSection))
+            return false;
+
+        completed[slot] = true;
+        completionCount++;
+        listener.tableCompleted(pid, section, length);
+        return true;
+    }
+
+    private static boolean isEIT(int tableId)
+    {
+        return tableId >= 0x4E && tableId <= 0x6F;
+    }
+
+    private void mark(int base, int from, int to)
+    {
+        for (int n = from; n <= to; n++)
+            bitmaps[base + (n >>> 6)] |= 1L << n;
+    }
+
+    private boolean isFull(int base, int lastSection)
+    {
+        int lastWord = lastSection >>> 6;
+        for (int i = 0; i < lastWord; i++)
+        {
+            if (bitmaps[base + i] != -1L)
+                return false;
+        }
+        long mask = -1L >>> (63 - (lastSection & 63));
+        return (bitmaps[base + lastWord] & mask) == mask;
+    }
+
+    private int newSlot()
+    {
+        if (slotCount == versions.length)
+        {
+            int capacity = versions.length << 1;
+            bitmaps = Arrays.copyOf(bitmaps, capacity * WORDS);
+            versions = Arrays.copyOf(versions, capacity);
+            lastSections = Arrays.copyOf(lastSections, capacity);
+            completed = Arrays.copyOf(completed, capacity);
+        }
+        int slot = slotCount++;
+        clearSlot(slot);
+        return slot;
+    }
+
+    private void clearSlot(int slot)
+    {
+        Arrays.fill(bitmaps, slot * WORDS, slot * WORDS + WORDS, 0L);
+        completed[slot] = false;
+    }
+
+    private void allocate(int capacity)
+    {
+        bitmaps = new long[capacity * WORDS];
+        versions = new int[capacity];
+        lastSections = new int[capacity];
+        completed = new boolean[capacity];
+    }
+}
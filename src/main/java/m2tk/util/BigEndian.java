@@ -16,11 +16,29 @@
 
 package m2tk.util;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 大端序读写工具。<p>
+ * 读取操作基于 VarHandle 的宽字节加载（一次读入2/4/8字节），在寄存器中移位、掩码，
+ * 不再逐字节拼装；剩余空间不足一次宽加载时退回到较窄的组合读取，不会越界。
+ * 字节数组与缓冲区（堆内或堆外）使用相同的实现方式。
+ */
 @SuppressWarnings("all")
 public final class BigEndian
 {
     private BigEndian() {}
 
+    private static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BUFFER_SHORT_BE = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BUFFER_INT_BE = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BUFFER_LONG_BE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
     /**
      * 单个字节的长度。
      */
@@ -101,9 +119,7 @@ public final class BigEndian
      */
     public static int getUINT16(byte[] bytes, int offset)
     {
-        int byte1 = bytes[offset + 0] & MASK_UINT8;
-        int byte2 = bytes[offset + 1] & MASK_UINT8;
-        return (byte1 << 8) | byte2;
+        return (short) SHORT_BE.get(bytes, offset) & MASK_UINT16;
     }
 
     /**
@@ -114,10 +130,9 @@ public final class BigEndian
      */
     public static int getUINT24(byte[] bytes, int offset)
     {
-        int byte1 = bytes[offset + 0] & MASK_UINT8;
-        int byte2 = bytes[offset + 1] & MASK_UINT8;
-        int byte3 = bytes[offset + 2] & MASK_UINT8;
-        return (byte1 << 16) | (byte2 << 8) | byte3;
+        if (offset + FOUR_BYTE <= bytes.length)
+            return (int) INT_BE.get(bytes, offset) >>> 8;
+        return (getUINT16(bytes, offset) << 8) | getUINT8(bytes, offset + 2);
     }
 
     /**
@@ -128,11 +143,7 @@ public final class BigEndian
      */
     public static long getUINT32(byte[] bytes, int offset)
     {
-        long byte1 = bytes[offset + 0] & MASK_UINT8;
-        long byte2 = bytes[offset + 1] & MASK_UINT8;
-        long byte3 = bytes[offset + 2] & MASK_UINT8;
-        long byte4 = bytes[offset + 3] & MASK_UINT8;
-        return (byte1 << 24) | (byte2 << 16) | (byte3 << 8) | byte4;
+        return (int) INT_BE.get(bytes, offset) & MASK_UINT32;
     }
 
     /**
@@ -143,12 +154,9 @@ public final class BigEndian
      */
     public static long getUINT40(byte[] bytes, int offset)
     {
-        long byte1 = bytes[offset + 0] & MASK_UINT8;
-        long byte2 = bytes[offset + 1] & MASK_UINT8;
-        long byte3 = bytes[offset + 2] & MASK_UINT8;
-        long byte4 = bytes[offset + 3] & MASK_UINT8;
-        long byte5 = bytes[offset + 4] & MASK_UINT8;
-        return (byte1 << 32) | (byte2 << 24) | (byte3 << 16) | (byte4 << 8) | byte5;
+        if (offset + EIGHT_BYTE <= bytes.length)
+            return (long) LONG_BE.get(bytes, offset) >>> 24;
+        return (getUINT32(bytes, offset) << 8) | getUINT8(bytes, offset + 4);
     }
 
     /**
@@ -159,14 +167,9 @@ public final class BigEndian
      */
     public static long getUINT48(byte[] bytes, int offset)
     {
-        long byte1 = bytes[offset + 0] & MASK_UINT8;
-        long byte2 = bytes[offset + 1] & MASK_UINT8;
-        long byte3 = bytes[offset + 2] & MASK_UINT8;
-        long byte4 = bytes[offset + 3] & MASK_UINT8;
-        long byte5 = bytes[offset + 4] & MASK_UINT8;
-        long byte6 = bytes[offset + 5] & MASK_UINT8;
-        return (byte1 << 40) | (byte2 << 32) | (byte3 << 24) | (byte4 << 16) |
-               (byte5 << 8) | byte6;
+        if (offset + EIGHT_BYTE <= bytes.length)
+            return (long) LONG_BE.get(bytes, offset) >>> 16;
+        return (getUINT32(bytes, offset) << 16) | getUINT16(bytes, offset + 4);
     }
 
     /**
@@ -177,15 +180,9 @@ public final class BigEndian
      */
     public static long getUINT56(byte[] bytes, int offset)
     {
-        long byte1 = bytes[offset + 0] & MASK_UINT8;
-        long byte2 = bytes[offset + 1] & MASK_UINT8;
-        long byte3 = bytes[offset + 2] & MASK_UINT8;
-        long byte4 = bytes[offset + 3] & MASK_UINT8;
-        long byte5 = bytes[offset + 4] & MASK_UINT8;
-        long byte6 = bytes[offset + 5] & MASK_UINT8;
-        long byte7 = bytes[offset + 6] & MASK_UINT8;
-        return (byte1 << 48) | (byte2 << 40) | (byte3 << 32) | (byte4 << 24) |
-               (byte5 << 16) | (byte6 << 8) | byte7;
+        if (offset + EIGHT_BYTE <= bytes.length)
+            return (long) LONG_BE.get(bytes, offset) >>> 8;
+        return (getUINT32(bytes, offset) << 24) | getUINT24(bytes, offset + 4);
     }
 
     /**
@@ -197,16 +194,104 @@ public final class BigEndian
      */
     public static long getUINT64(byte[] bytes, int offset)
     {
-        long byte1 = bytes[offset + 0] & 0xFF;
-        long byte2 = bytes[offset + 1] & 0xFF;
-        long byte3 = bytes[offset + 2] & 0xFF;
-        long byte4 = bytes[offset + 3] & 0xFF;
-        long byte5 = bytes[offset + 4] & 0xFF;
-        long byte6 = bytes[offset + 5] & 0xFF;
-        long byte7 = bytes[offset + 6] & 0xFF;
-        long byte8 = bytes[offset + 7] & 0xFF;
-        return (byte1 << 56) | (byte2 << 48) | (byte3 << 40) | (byte4 << 32) |
-               (byte5 << 24) | (byte6 << 16) | (byte7 << 8) | byte8;
+        return (long) LONG_BE.get(bytes, offset);
+    }
+
+    /**
+     * 从缓冲区的指定位置（绝对位置）读取8位无符号整数。
+     * @param buffer 缓冲区（堆内或堆外，不受其position与字节序设置影响）。
+     * @param offset 目标位置。
+     * @return 8位无符号整数，范围在 <code>0</code> 到 <code>2^8 - 1</code> 之间。
+     */
+    public static int getUINT8(ByteBuffer buffer, int offset)
+    {
+        return buffer.get(offset) & MASK_UINT8;
+    }
+
+    /**
+     * 从缓冲区的指定位置（绝对位置）读取16位无符号整数。
+     * @param buffer 缓冲区（堆内或堆外，不受其position与字节序设置影响）。
+     * @param offset 目标位置。
+     * @return 16位无符号整数，范围在 <code>0</code> 到 <code>2^16 - 1</code> 之间。
+     */
+    public static int getUINT16(ByteBuffer buffer, int offset)
+    {
+        return (short) BUFFER_SHORT_BE.get(buffer, offset) & MASK_UINT16;
+    }
+
+    /**
+     * 从缓冲区的指定位置（绝对位置）读取24位无符号整数。
+     * @param buffer 缓冲区（堆内或堆外，不受其position与字节序设置影响）。
+     * @param offset 目标位置。
+     * @return 24位无符号整数，范围在 <code>0</code> 到 <code>2^24 - 1</code> 之间。
+     */
+    public static int getUINT24(ByteBuffer buffer, int offset)
+    {
+        if (offset + FOUR_BYTE <= buffer.limit())
+            return (int) BUFFER_INT_BE.get(buffer, offset) >>> 8;
+        return (getUINT16(buffer, offset) << 8) | getUINT8(buffer, offset + 2);
+    }
+
+    /**
+     * 从缓冲区的指定位置（绝对位置）读取32位无符号整数。
+     * @param buffer 缓冲区（堆内或堆外，不受其position与字节序设置影响）。
+     * @param offset 目标位置。
+     * @return 32位无符号整数，范围在 <code>0</code> 到 <code>2^32 - 1</code> 之间。
+     */
+    public static long getUINT32(ByteBuffer buffer, int offset)
+    {
+        return (int) BUFFER_INT_BE.get(buffer, offset) & MASK_UINT32;
+    }
+
+    /**
+     * 从缓冲区的指定位置（绝对位置）读取40位无符号整数。
+     * @param buffer 缓冲区（堆内或堆外，不受其position与字节序设置影响）。
+     * @param offset 目标位置。
+     * @return 40位无符号整数，范围在 <code>0</code> 到 <code>2^40 - 1</code> 之间。
+     */
+    public static long getUINT40(ByteBuffer buffer, int offset)
+    {
+        if (offset + EIGHT_BYTE <= buffer.limit())
+            return (long) BUFFER_LONG_BE.get(buffer, offset) >>> 24;
+        return (getUINT32(buffer, offset) << 8) | getUINT8(buffer, offset + 4);
+    }
+
+    /**
+     * 从缓冲区的指定位置（绝对位置）读取48位无符号整数。
+     * @param buffer 缓冲区（堆内或堆外，不受其position与字节序设置影响）。
+     * @param offset 目标位置。
+     * @return 48位无符号整数，范围在 <code>0</code> 到 <code>2^48 - 1</code> 之间。
+     */
+    public static long getUINT48(ByteBuffer buffer, int offset)
+    {
+        if (offset + EIGHT_BYTE <= buffer.limit())
+            return (long) BUFFER_LONG_BE.get(buffer, offset) >>> 16;
+        return (getUINT32(buffer, offset) << 16) | getUINT16(buffer, offset + 4);
+    }
+
+    /**
+     * 从缓冲区的指定位置（绝对位置）读取56位无符号整数。
+     * @param buffer 缓冲区（堆内或堆外，不受其position与字节序设置影响）。
+     * @param offset 目标位置。
+     * @return 56位无符号整数，范围在 <code>0</code> 到 <code>2^56 - 1</code> 之间。
+     */
+    public static long getUINT56(ByteBuffer buffer, int offset)
+    {
+        if (offset + EIGHT_BYTE <= buffer.limit())
+            return (long) BUFFER_LONG_BE.get(buffer, offset) >>> 8;
+        return (getUINT32(buffer, offset) << 24) | getUINT24(buffer, offset + 4);
+    }
+
+    /**
+     * 从缓冲区的指定位置（绝对位置）读取64位无符号整数。
+     * @param buffer 缓冲区（堆内或堆外，不受其position与字节序设置影响）。
+     * @param offset 目标位置。
+     * @return 64位无符号整数，范围在 <code>0</code> 到 <code>2^64 - 1</code> 之间。
+     *         （由于Java语言的限制，实际输出的有可能是负值，这里只考虑值的二进制表示效果）
+     */
+    public static long getUINT64(ByteBuffer buffer, int offset)
+    {
+        return (long) BUFFER_LONG_BE.get(buffer, offset);
     }
 
     /**
@@ -331,20 +416,7 @@ public final class BigEndian
     public static long getBits(byte[] bytes, int offset, long mask)
     {
         if (mask == -1L) // mask: 0xFFFFFFFFFFFFFFFFL
-        {
-            long part1 = (bytes[offset + 0] & 0xFFL) << 56;
-            long part2 = (bytes[offset + 1] & 0xFFL) << 48;
-            long part3 = (bytes[offset + 2] & 0xFFL) << 40;
-            long part4 = (bytes[offset + 3] & 0xFFL) << 32;
-            long part5 = (bytes[offset + 4] & 0xFFL) << 24;
-            long part6 = (bytes[offset + 5] & 0xFFL) << 16;
-            long part7 = (bytes[offset + 6] & 0xFFL) << 8;
-            long part8 = (bytes[offset + 7] & 0xFFL);
-            return part1 | part2 | part3 | part4 | part5 | part6 | part7 | part8;
-        }
-
-        // 改进的算法采用直接掩码（AND操作），之后移位舍零。
-        // 应该比之前的逆序压栈再弹栈再移位的处理效率高那么一点点。
+            return getUINT64(bytes, offset);
 
         //            |<-------- mask size -------->|
         // data:      |xxxx|xxxx|xxxx|xxxx|xxxx|xxxx|
@@ -358,6 +430,9 @@ public final class BigEndian
         int size = 8 - Long.numberOfLeadingZeros(mask) / 8; // 必须先做除法，利用整除约分，否则结果不正确（差一字节）。
         int tail = Long.numberOfTrailingZeros(mask);
 
+        // 空间足够时一次读入8字节，右移对齐后掩码，无需按长度分支。
+        if (offset + EIGHT_BYTE <= bytes.length)
+            return ((long) LONG_BE.get(bytes, offset) >>> ((8 - size) << 3) & mask) >>> tail;
         return AND(bytes, offset, mask, size) >>> tail;
     }
 
@@ -386,6 +461,44 @@ public final class BigEndian
         }
     }
 
+    public static long getBits(ByteBuffer buffer, int offset, long mask)
+    {
+        if (mask == -1L)
+            return getUINT64(buffer, offset);
+
+        int size = 8 - Long.numberOfLeadingZeros(mask) / 8;
+        int tail = Long.numberOfTrailingZeros(mask);
+
+        if (offset + EIGHT_BYTE <= buffer.limit())
+            return ((long) BUFFER_LONG_BE.get(buffer, offset) >>> ((8 - size) << 3) & mask) >>> tail;
+        return AND(buffer, offset, mask, size) >>> tail;
+    }
+
+    public static long AND(ByteBuffer buffer, int offset, long value, int size)
+    {
+        switch (size)
+        {
+            case 1:
+                return value & getUINT8(buffer, offset);
+            case 2:
+                return value & getUINT16(buffer, offset);
+            case 3:
+                return value & getUINT24(buffer, offset);
+            case 4:
+                return value & getUINT32(buffer, offset);
+            case 5:
+                return value & getUINT40(buffer, offset);
+            case 6:
+                return value & getUINT48(buffer, offset);
+            case 7:
+                return value & getUINT56(buffer, offset);
+            case 8:
+                return value & getUINT64(buffer, offset);
+            default:
+                throw new IllegalArgumentException("invalid value size: " + size);
+        }
+    }
+
     public static long IOR(byte[] bytes, int offset, long value, int size)
     {
         switch (size)
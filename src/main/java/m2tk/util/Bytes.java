@@ -16,6 +16,9 @@
 
 package m2tk.util;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 @SuppressWarnings("all")
@@ -167,6 +170,37 @@ public final class Bytes
         return equalsWithMask(array1, 0, array2, 0, masks, 0, array1.length);
     }
 
+    /**
+     * 在数组的指定区间内查找目标字节第一次出现的位置。<p>
+     * 每次读取8个字节，用SWAR方法（按字判零）一次比较整个字，适合在大块数据中搜索稀疏的标记字节（如同步字节）。
+     * @param array 数组
+     * @param from 起始位置（含）
+     * @param to 结束位置（不含）
+     * @param value 目标字节
+     * @return 目标字节的位置，未找到时返回-1。
+     */
+    public static int indexOf(byte[] array, int from, int to, int value)
+    {
+        Preconditions.checkFromToIndex(from, to, array.length);
+
+        // 小端读取使得低地址字节位于低位，借位只会向高位传播，因此最低位的命中总是准确的。
+        long pattern = (value & 0xFFL) * 0x0101010101010101L;
+        int i = from;
+        for (; i + 8 <= to; i += 8)
+        {
+            long x = (long) LONG_LE.get(array, i) ^ pattern;
+            long t = (x - 0x0101010101010101L) & ~x & 0x8080808080808080L;
+            if (t != 0)
+                return i + (Long.numberOfTrailingZeros(t) >>> 3);
+        }
+        for (; i < to; i ++)
+        {
+            if (array[i] == (byte) value)
+                return i;
+        }
+        return -1;
+    }
+
     public static byte[] of(String hex)
     {
         if (hex == null || !hex.matches("^([0-9a-fA-F]{2})+$"))
@@ -185,6 +219,7 @@ public final class Bytes
     }
 
     private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
     private static final char[] HEX = "0123456789abcdef".toCharArray();
 
     public static String toHexString(byte[] bytes)
@@ -16,15 +16,27 @@
 
 package m2tk.util;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * An implementation of CRC32 algorithm (fast version)
- *
+ * <p>
+ * 采用 slicing-by-8 查表法：每次读取8个字节，查8张 int 表后合并，比逐字节查表快数倍。
+ * 逐字节的原始实现保留为 {@link #checksumBytewise(byte[], int, int)}，用作结果比对的基准。
  */
 @SuppressWarnings("all")
 public final class CRC32
 {
     private CRC32() {}
 
+    /**
+     * 校验计算的初始值。
+     */
+    public static final long INITIAL_VALUE = 0xFFFFFFFFL;
+
     /**
      * 计算输入数据的CRC32校验值。
      *
@@ -45,6 +57,51 @@ public final class CRC32
      * @return CRC32校验值。
      */
     public static long checksum(byte[] data, int offset, int length)
+    {
+        return update(INITIAL_VALUE, data, offset, length);
+    }
+
+    /**
+     * 在已有校验值的基础上继续计算后续数据的CRC32校验值。<p>
+     * 数据可以分成任意多段依次输入，结果与一次性计算全部数据相同：
+     * <pre>
+     * long crc = CRC32.INITIAL_VALUE;
+     * crc = CRC32.update(crc, part1, 0, part1.length);
+     * crc = CRC32.update(crc, part2, 0, part2.length);
+     * </pre>
+     *
+     * @param crc 之前的校验值（首段数据使用 {@link #INITIAL_VALUE}）。
+     * @param data 包含待校验数据的缓冲区。
+     * @param offset 数据在缓冲区内的起始偏移量。
+     * @param length 数据长度。
+     * @return 更新后的CRC32校验值。
+     */
+    public static long update(long crc, byte[] data, int offset, int length)
+    {
+        int c = (int) crc;
+        int i = offset;
+        int end = offset + length;
+        for (; i + 8 <= end; i += 8)
+        {
+            int hi = c ^ (int) INT_BE.get(data, i);
+            int lo = (int) INT_BE.get(data, i + 4);
+            c = slice8(hi, lo);
+        }
+        for (; i < end; i++)
+            c = (c << 8) ^ SLICES[((c >>> 24) ^ data[i]) & 0xFF];
+
+        return c & 0xFFFFFFFFL;
+    }
+
+    /**
+     * 逐字节查表计算CRC32校验值（原始实现），结果与 {@link #checksum(byte[], int, int)} 相同。
+     *
+     * @param data 包含待校验数据的缓冲区。
+     * @param offset 数据在缓冲区内的起始偏移量。
+     * @param length 数据长度。
+     * @return CRC32校验值。
+     */
+    public static long checksumBytewise(byte[] data, int offset, int length)
     {
         long crc;
         byte idx;
@@ -60,6 +117,46 @@ public final class CRC32
         return crc;
     }
 
+    /**
+     * 计算缓冲区内指定区域（绝对位置）的CRC32校验值。
+     *
+     * @param buffer 包含待校验数据的缓冲区（堆内或堆外）。
+     * @param offset 数据在缓冲区内的起始偏移量。
+     * @param length 数据长度。
+     * @return CRC32校验值。
+     */
+    public static long checksum(ByteBuffer buffer, int offset, int length)
+    {
+        int c = (int) INITIAL_VALUE;
+        int i = offset;
+        int end = offset + length;
+        for (; i + 8 <= end; i += 8)
+        {
+            int hi = c ^ (int) BUFFER_INT_BE.get(buffer, i);
+            int lo = (int) BUFFER_INT_BE.get(buffer, i + 4);
+            c = slice8(hi, lo);
+        }
+        for (; i < end; i++)
+            c = (c << 8) ^ SLICES[((c >>> 24) ^ buffer.get(i)) & 0xFF];
+
+        return c & 0xFFFFFFFFL;
+    }
+
+    private static int slice8(int hi, int lo)
+    {
+        return SLICES[0x700 + (hi >>> 24)] ^
+               SLICES[0x600 + ((hi >>> 16) & 0xFF)] ^
+               SLICES[0x500 + ((hi >>> 8) & 0xFF)] ^
+               SLICES[0x400 + (hi & 0xFF)] ^
+               SLICES[0x300 + (lo >>> 24)] ^
+               SLICES[0x200 + ((lo >>> 16) & 0xFF)] ^
+               SLICES[0x100 + ((lo >>> 8) & 0xFF)] ^
+               SLICES[lo & 0xFF];
+    }
+
+    private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BUFFER_INT_BE = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
     public static final long[] CRC_TABLE =
     {
         0x00000000L, 0x04C11DB7L, 0x09823B6EL, 0x0D4326D9L,
@@ -127,4 +224,23 @@ public final class CRC32
         0xAFB010B1L, 0xAB710D06L, 0xA6322BDFL, 0xA2F33668L,
         0xBCB4666DL, 0xB8757BDAL, 0xB5365D03L, 0xB1F740B4L
     };
+
+    // SLICES[k * 256 + b]：字节b之后再经过k个零字节的余式，即 T(k)[b] = (T(k-1)[b] << 8) ^ T(0)[T(k-1)[b] >>> 24]。
+    private static final int[] SLICES = buildSlices();
+
+    private static int[] buildSlices()
+    {
+        int[] slices = new int[8 * 256];
+        for (int b = 0; b < 256; b++)
+            slices[b] = (int) CRC_TABLE[b];
+        for (int k = 1; k < 8; k++)
+        {
+            for (int b = 0; b < 256; b++)
+            {
+                int prev = slices[(k - 1) * 256 + b];
+                slices[k * 256 + b] = (prev << 8) ^ slices[prev >>> 24];
+            }
+        }
+        return slices;
+    }
 }
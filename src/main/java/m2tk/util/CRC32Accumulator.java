@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.util;
+
+/**
+ * 可分段输入数据的CRC32（MPEG-2）校验状态。<p>
+ * 数据到达一段就计算一段，最后一个字节输入后即可得到校验结果，无需再遍历一遍完整数据。
+ * 对于包含CRC_32字段的段，全部输入后校验值为0即表示校验正确。
+ */
+public final class CRC32Accumulator
+{
+    private long crc;
+
+    public CRC32Accumulator()
+    {
+        crc = CRC32.INITIAL_VALUE;
+    }
+
+    public void reset()
+    {
+        crc = CRC32.INITIAL_VALUE;
+    }
+
+    public void update(int b)
+    {
+        int idx = (int) ((crc >>> 24) ^ (b & 0xFF));
+        crc = ((crc << 8) ^ CRC32.CRC_TABLE[idx]) & 0xFFFFFFFFL;
+    }
+
+    public void update(byte[] data, int offset, int length)
+    {
+        Preconditions.checkFromIndexSize(offset, length, data.length);
+        crc = CRC32.update(crc, data, offset, length);
+    }
+
+    public long getValue()
+    {
+        return crc;
+    }
+
+    public boolean isZero()
+    {
+        return crc == 0;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) M2TK Project. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package m2tk.util;
+
+import java.util.Arrays;
+
+/**
+ * 以long为键、long为值的开放寻址哈希表（线性探测）。<p>
+ * 键和值都以基本类型保存，查找、插入与删除均不创建对象（只有扩容时重新分配数组）。
+ * 不是线程安全的。
+ */
+public final class LongLongHashMap
+{
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    // 键0与空槽标记冲突，单独保存。
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    public LongLongHashMap()
+    {
+        this(MIN_CAPACITY);
+    }
+
+    public LongLongHashMap(int expectedSize)
+    {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2)
+            capacity <<= 1;
+        allocate(capacity);
+    }
+
+    public int size()
+    {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    public boolean containsKey(long key)
+    {
+        if (key == EMPTY)
+            return hasZeroKey;
+        return keys[find(key)] != EMPTY;
+    }
+
+    /**
+     * @param key          键
+     * @param defaultValue 键不存在时的返回值
+     * @return 键对应的值，不存在时返回defaultValue。
+     */
+    public long get(long key, long defaultValue)
+    {
+        if (key == EMPTY)
+            return hasZeroKey ? zeroValue : defaultValue;
+        int slot = find(key);
+        return (keys[slot] != EMPTY) ? values[slot] : defaultValue;
+    }
+
+    /**
+     * @param key          键
+     * @param value        值
+     * @param defaultValue 键原先不存在时的返回值
+     * @return 键原先对应的值，不存在时返回defaultValue。
+     */
+    public long put(long key, long value, long defaultValue)
+    {
+        if (key == EMPTY)
+        {
+            long previous = hasZeroKey ? zeroValue : defaultValue;
+            hasZeroKey = true;
+            zeroValue = value;
+            return previous;
+        }
+
+        int slot = find(key);
+        if (keys[slot] != EMPTY)
+        {
+            long previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold)
+            rehash(keys.length << 1);
+        return defaultValue;
+    }
+
+    /**
+     * @param key          键
+     * @param defaultValue 键不存在时的返回值
+     * @return 被删除的值，不存在时返回defaultValue。
+     */
+    public long remove(long key, long defaultValue)
+    {
+        if (key == EMPTY)
+        {
+            if (!hasZeroKey)
+                return defaultValue;
+            hasZeroKey = false;
+            return zeroValue;
+        }
+
+        int slot = find(key);
+        if (keys[slot] == EMPTY)
+            return defaultValue;
+
+        long previous = values[slot];
+        // 向后移位删除，保持探测链连续，无需墓碑标记。
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY)
+        {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask))
+            {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        values[gap] = 0;
+        size--;
+        return previous;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, 0);
+        size = 0;
+        hasZeroKey = false;
+        zeroValue = 0;
+    }
+
+    /**
+     * 遍历所有键值对。遍历期间不能修改哈希表。
+     *
+     * @param consumer 键值对接收者
+     */
+    public void forEach(LongBiConsumer consumer)
+    {
+        if (hasZeroKey)
+            consumer.accept(EMPTY, zeroValue);
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != EMPTY)
+                consumer.accept(keys[i], values[i]);
+        }
+    }
+
+    private int find(long key)
+    {
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private static int mix(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        threshold = capacity >>> 1;
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            long key = oldKeys[i];
+            if (key != EMPTY)
+            {
+                int slot = find(key);
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}